@@ -0,0 +1,64 @@
+package com.imooc.mall.benchmark;
+
+import com.google.gson.Gson;
+import com.imooc.mall.codec.CartCodec;
+import com.imooc.mall.codec.PackedCartCodec;
+import com.imooc.mall.pojo.Cart;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 购物车单条记录在redis hash里的编解码
+ * gson* 是原来直接用Gson的写法，packed* 是CartCodec的新格式，legacyDecode 是新codec读旧数据
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartSerializationBenchmark {
+
+	private final Gson gson = new Gson();
+
+	private final CartCodec cartCodec = new PackedCartCodec();
+
+	private Cart cart;
+
+	private String json;
+
+	private String packed;
+
+	@Setup
+	public void setup() {
+		cart = new Cart(26, 3, true);
+		json = gson.toJson(cart);
+		packed = cartCodec.encode(cart);
+	}
+
+	@Benchmark
+	public String gsonEncode() {
+		return gson.toJson(cart);
+	}
+
+	@Benchmark
+	public Cart gsonDecode() {
+		return gson.fromJson(json, Cart.class);
+	}
+
+	@Benchmark
+	public String packedEncode() {
+		return cartCodec.encode(cart);
+	}
+
+	@Benchmark
+	public Cart packedDecode() {
+		return cartCodec.decode(26, packed);
+	}
+
+	@Benchmark
+	public Cart legacyDecode() {
+		return cartCodec.decode(26, json);
+	}
+}
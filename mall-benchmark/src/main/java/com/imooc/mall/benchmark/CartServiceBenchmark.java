@@ -0,0 +1,96 @@
+package com.imooc.mall.benchmark;
+
+import com.imooc.mall.cache.ProductSnapshotCache;
+import com.imooc.mall.codec.CartCodec;
+import com.imooc.mall.codec.PackedCartCodec;
+import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.pojo.Cart;
+import com.imooc.mall.pojo.Product;
+import com.imooc.mall.service.impl.CartServiceImpl;
+import com.imooc.mall.vo.CartVo;
+import com.imooc.mall.vo.ResponseVo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 购物车列表：读redis hash -> 反序列化 -> 查商品快照 -> 组装CartVo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartServiceBenchmark {
+
+	@Param({"1", "10", "50"})
+	private int cartSize;
+
+	private CartServiceImpl cartService;
+
+	private ProductSnapshotCache productSnapshotCache;
+
+	private List<Integer> productIdList;
+
+	@Setup
+	public void setup() {
+		List<Product> productList = Fixtures.products(cartSize);
+		Map<Integer, Product> productMap = productList.stream()
+				.collect(Collectors.toMap(Product::getId, p -> p));
+		ProductMapper productMapper = Stubs.of(ProductMapper.class)
+				.on("selectByProductIdSet", args -> ((Set<?>) args[0]).stream()
+						.map(productMap::get)
+						.map(p -> Fixtures.product(p.getId()))
+						.collect(Collectors.toList()))
+				.on("selectByPrimaryKey", args -> productMap.get(args[0]))
+				.build();
+
+		InMemoryRedisTemplate redisTemplate = new InMemoryRedisTemplate();
+		CartCodec cartCodec = new PackedCartCodec();
+		Map<String, String> entries = new HashMap<>();
+		for (Product product : productList) {
+			entries.put(String.valueOf(product.getId()), cartCodec.encode(new Cart(product.getId(), 2, true)));
+		}
+		redisTemplate.opsForHash().putAll(String.format("cart_%d", Fixtures.UID), entries);
+
+		productSnapshotCache = Stubs.inject(new ProductSnapshotCache(), "productMapper", productMapper);
+		cartService = new CartServiceImpl();
+		Stubs.inject(cartService, "productMapper", productMapper);
+		Stubs.inject(cartService, "productSnapshotCache", productSnapshotCache);
+		Stubs.inject(cartService, "redisTemplate", redisTemplate);
+		Stubs.inject(cartService, "cartCodec", cartCodec);
+
+		productIdList = productList.stream().map(Product::getId).collect(Collectors.toList());
+	}
+
+	/**
+	 * 商品快照都在本地缓存里
+	 */
+	@Benchmark
+	public ResponseVo<CartVo> listCached() {
+		return cartService.list(Fixtures.UID);
+	}
+
+	/**
+	 * 商品快照全部失效，每次都要回源查一次
+	 */
+	@Benchmark
+	public ResponseVo<CartVo> listUncached() {
+		for (Integer productId : productIdList) {
+			productSnapshotCache.invalidate(productId);
+		}
+		return cartService.list(Fixtures.UID);
+	}
+
+	/**
+	 * 全选和全不选交替，每次都要写回所有行
+	 */
+	@Benchmark
+	public ResponseVo<CartVo> toggleSelectAll() {
+		cartService.selectAll(Fixtures.UID);
+		return cartService.unSelectAll(Fixtures.UID);
+	}
+}
@@ -0,0 +1,86 @@
+package com.imooc.mall.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imooc.mall.cache.CategoryIndex;
+import com.imooc.mall.cache.SerializedResponse;
+import com.imooc.mall.dao.CategoryMapper;
+import com.imooc.mall.pojo.Category;
+import com.imooc.mall.service.impl.CategoryServiceImpl;
+import com.imooc.mall.vo.CategoryVo;
+import com.imooc.mall.vo.ResponseVo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 类目树和子类目id查询，以及类目变更后重建索引的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryServiceBenchmark {
+
+	private static final int FAN_OUT = 10;
+
+	@Param({"100", "2000"})
+	private int categoryCount;
+
+	private List<Category> categoryList;
+
+	private CategoryServiceImpl categoryService;
+
+	private Integer topCategoryId;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Setup
+	public void setup() {
+		categoryList = Fixtures.categories(categoryCount, FAN_OUT);
+		CategoryMapper categoryMapper = Stubs.of(CategoryMapper.class)
+				.on("selectAll", args -> categoryList)
+				.on("selectVersion", args -> "benchmark")
+				.build();
+		categoryService = Stubs.inject(new CategoryServiceImpl(), "categoryMapper", categoryMapper);
+		Stubs.inject(categoryService, "objectMapper", objectMapper);
+		topCategoryId = categoryList.get(0).getId();
+	}
+
+	@Benchmark
+	public ResponseVo<List<CategoryVo>> selectAll() {
+		return categoryService.selectAll();
+	}
+
+	/**
+	 * 原来的/categories: 每次都把整棵树转成json
+	 */
+	@Benchmark
+	public byte[] selectAllAndSerialize() throws Exception {
+		return objectMapper.writeValueAsBytes(categoryService.selectAll());
+	}
+
+	/**
+	 * 现在的/categories: 直接拿序列化好的字节
+	 */
+	@Benchmark
+	public SerializedResponse selectAllSerialized() {
+		return categoryService.selectAllSerialized();
+	}
+
+	@Benchmark
+	public Set<Integer> findSubCategoryId() {
+		Set<Integer> resultSet = new HashSet<>();
+		categoryService.findSubCategoryId(topCategoryId, resultSet);
+		return resultSet;
+	}
+
+	@Benchmark
+	public CategoryIndex buildIndex() {
+		return CategoryIndex.build(categoryList, "benchmark");
+	}
+}
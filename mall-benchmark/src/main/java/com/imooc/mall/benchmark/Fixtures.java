@@ -0,0 +1,125 @@
+package com.imooc.mall.benchmark;
+
+import com.imooc.mall.enums.OrderStatusEnum;
+import com.imooc.mall.enums.PaymentTypeEnum;
+import com.imooc.mall.enums.ProductStatusEnum;
+import com.imooc.mall.pojo.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 压测数据，字段长度尽量接近线上
+ */
+public final class Fixtures {
+
+	public static final Integer UID = 1;
+
+	private Fixtures() {
+	}
+
+	public static Product product(int id) {
+		Product product = new Product();
+		product.setId(id);
+		product.setCategoryId(100000 + id % 20);
+		product.setName("Apple iPhone 11 (A2223) 128GB 黑色 移动联通电信4G手机 " + id);
+		product.setSubtitle("【iPhone11到手价4999】全面屏，双摄像头，A13仿生芯片");
+		product.setMainImage("http://img.springboot.cn/" + id + "/main.jpg");
+		product.setSubImages("http://img.springboot.cn/" + id + "/1.jpg,http://img.springboot.cn/" + id + "/2.jpg");
+		product.setDetail(detail(id));
+		product.setPrice(new BigDecimal("4999.00"));
+		product.setStock(1000);
+		product.setStatus(ProductStatusEnum.ON_SALE.getCode());
+		product.setCreateTime(new Date());
+		product.setUpdateTime(new Date());
+		return product;
+	}
+
+	public static List<Product> products(int count) {
+		List<Product> productList = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			productList.add(product(i));
+		}
+		return productList;
+	}
+
+	/**
+	 * 三层类目树，每个父类目下 fanOut 个子类目
+	 */
+	public static List<Category> categories(int count, int fanOut) {
+		List<Category> categoryList = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			Category category = new Category();
+			category.setId(100000 + i);
+			category.setParentId(i <= fanOut ? 0 : 100000 + (i - 1) / fanOut);
+			category.setName("类目" + i);
+			category.setStatus(true);
+			category.setSortOrder(i % 7);
+			category.setCreateTime(new Date());
+			category.setUpdateTime(new Date());
+			categoryList.add(category);
+		}
+		return categoryList;
+	}
+
+	public static Order order(long orderNo) {
+		Order order = new Order();
+		order.setId((int) orderNo);
+		order.setOrderNo(orderNo);
+		order.setUserId(UID);
+		order.setShippingId(1);
+		order.setPayment(new BigDecimal("9998.00"));
+		order.setPaymentType(PaymentTypeEnum.PAY_ONLINE.getCode());
+		order.setPostage(0);
+		order.setStatus(OrderStatusEnum.NO_PAY.getCode());
+		order.setCreateTime(new Date());
+		order.setUpdateTime(new Date());
+		return order;
+	}
+
+	public static List<OrderItem> orderItems(long orderNo, int count) {
+		List<OrderItem> orderItemList = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			Product product = product(i);
+			OrderItem item = new OrderItem();
+			item.setId(i);
+			item.setUserId(UID);
+			item.setOrderNo(orderNo);
+			item.setProductId(product.getId());
+			item.setProductName(product.getName());
+			item.setProductImage(product.getMainImage());
+			item.setCurrentUnitPrice(product.getPrice());
+			item.setQuantity(2);
+			item.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(2)));
+			item.setCreateTime(new Date());
+			item.setUpdateTime(new Date());
+			orderItemList.add(item);
+		}
+		return orderItemList;
+	}
+
+	public static Shipping shipping() {
+		Shipping shipping = new Shipping();
+		shipping.setId(1);
+		shipping.setUserId(UID);
+		shipping.setReceiverName("廖师兄");
+		shipping.setReceiverPhone("010");
+		shipping.setReceiverMobile("18688888888");
+		shipping.setReceiverProvince("北京");
+		shipping.setReceiverCity("北京市");
+		shipping.setReceiverDistrict("海淀区");
+		shipping.setReceiverAddress("中关村");
+		shipping.setReceiverZip("100000");
+		return shipping;
+	}
+
+	private static String detail(int id) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			sb.append("<p><img src=\"http://img.springboot.cn/").append(id).append("/detail-").append(i).append(".jpg\"/></p>");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,89 @@
+package com.imooc.mall.benchmark;
+
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只实现了string和hash结构的StringRedisTemplate，数据放在内存里，不处理过期
+ * 压测的是service本身的开销，不包含网络往返
+ */
+public class InMemoryRedisTemplate extends StringRedisTemplate {
+
+	private final Map<String, String> valueMap = new ConcurrentHashMap<>();
+
+	private final Map<String, Map<String, String>> hashMap = new ConcurrentHashMap<>();
+
+	private final ValueOperations<String, String> valueOperations = Stubs.of(ValueOperations.class)
+			.on("get", args -> valueMap.get(args[0]))
+			.on("set", args -> valueMap.put((String) args[0], (String) args[1]))
+			.on("setIfAbsent", args -> valueMap.putIfAbsent((String) args[0], (String) args[1]) == null)
+			.build();
+
+	private final HashOperations<String, String, String> hashOperations = Stubs.of(HashOperations.class)
+			.on("get", args -> hash((String) args[0]).get(args[1]))
+			.on("put", args -> hash((String) args[0]).put((String) args[1], (String) args[2]))
+			.on("putAll", args -> {
+				@SuppressWarnings("unchecked")
+				Map<String, String> map = (Map<String, String>) args[1];
+				hash((String) args[0]).putAll(map);
+				return null;
+			})
+			.on("multiGet", args -> {
+				List<String> values = new ArrayList<>();
+				for (Object field : (Collection<?>) args[1]) {
+					values.add(hash((String) args[0]).get(field));
+				}
+				return values;
+			})
+			.on("entries", args -> new LinkedHashMap<>(hash((String) args[0])))
+			.on("values", args -> new ArrayList<>(hash((String) args[0]).values()))
+			.on("keys", args -> new LinkedHashSet<>(hash((String) args[0]).keySet()))
+			.on("size", args -> (long) hash((String) args[0]).size())
+			.on("delete", args -> {
+				long count = 0;
+				for (Object field : (Object[]) args[1]) {
+					if (hash((String) args[0]).remove(field) != null) {
+						count++;
+					}
+				}
+				return count;
+			})
+			.build();
+
+	@Override
+	public ValueOperations<String, String> opsForValue() {
+		return valueOperations;
+	}
+
+	@Override
+	public Boolean delete(String key) {
+		return valueMap.remove(key) != null | hashMap.remove(key) != null;
+	}
+
+	/**
+	 * 不处理过期，存在的key都当作没设过期时间
+	 */
+	@Override
+	public Long getExpire(String key, TimeUnit timeUnit) {
+		return valueMap.containsKey(key) || hashMap.containsKey(key) ? -1L : -2L;
+	}
+
+	@Override
+	public void convertAndSend(String channel, Object message) {
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+		return (HashOperations<String, HK, HV>) hashOperations;
+	}
+
+	private Map<String, String> hash(String key) {
+		return hashMap.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+	}
+}
@@ -0,0 +1,125 @@
+package com.imooc.mall.benchmark;
+
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.PageInfo;
+import com.imooc.mall.config.ExecutorConfig;
+import com.imooc.mall.config.PageCountConfig;
+import com.imooc.mall.dao.OrderItemMapper;
+import com.imooc.mall.dao.OrderMapper;
+import com.imooc.mall.dao.ShippingMapper;
+import com.imooc.mall.pojo.Order;
+import com.imooc.mall.pojo.OrderItem;
+import com.imooc.mall.service.impl.OrderServiceImpl;
+import com.imooc.mall.vo.OrderVo;
+import com.imooc.mall.vo.ResponseVo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单详情和列表
+ * latencyMillis=0 主要是buildOrderVo里的对象拷贝，>0 模拟每次查库的网络往返
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+	private static final int PAGE_SIZE = 10;
+
+	private static final long ORDER_NO = 1000L;
+
+	@Param({"1", "10"})
+	private int itemCount;
+
+	@Param({"0", "1"})
+	private int latencyMillis;
+
+	private OrderServiceImpl orderService;
+
+	private ThreadPoolTaskExecutor queryExecutor;
+
+	@Setup
+	public void setup() {
+		List<Order> orderList = new ArrayList<>();
+		List<OrderItem> orderItemList = new ArrayList<>();
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			orderList.add(Fixtures.order(ORDER_NO + i));
+			orderItemList.addAll(Fixtures.orderItems(ORDER_NO + i, itemCount));
+		}
+		List<OrderItem> detailItemList = Fixtures.orderItems(ORDER_NO, itemCount);
+
+		OrderMapper orderMapper = Stubs.of(OrderMapper.class)
+				.on("selectByOrderNo", args -> orderList.get(0))
+				.on("selectByUid", args -> orderList)
+				.on("countByUid", args -> 100L)
+				.build();
+		OrderItemMapper orderItemMapper = Stubs.of(OrderItemMapper.class)
+				.on("selectByOrderNoSet", args -> {
+					sleep();
+					return ((Set<?>) args[0]).size() == 1 ? detailItemList : orderItemList;
+				})
+				.build();
+		ShippingMapper shippingMapper = Stubs.of(ShippingMapper.class)
+				.on("selectByPrimaryKey", args -> {
+					sleep();
+					return Fixtures.shipping();
+				})
+				.on("selectByIdSet", args -> {
+					sleep();
+					return Collections.singletonList(Fixtures.shipping());
+				})
+				.build();
+
+		orderService = new OrderServiceImpl();
+		Stubs.inject(orderService, "orderMapper", orderMapper);
+		Stubs.inject(orderService, "orderItemMapper", orderItemMapper);
+		Stubs.inject(orderService, "shippingMapper", shippingMapper);
+		Stubs.inject(orderService, "countCache", Stubs.countCache(new PageCountConfig()));
+		queryExecutor = new ExecutorConfig().queryExecutor();
+		queryExecutor.setDaemon(true);
+		queryExecutor.initialize();
+		Stubs.inject(orderService, "queryExecutor", queryExecutor);
+		Stubs.inject(orderService, "meterRegistry", new SimpleMeterRegistry());
+	}
+
+	@TearDown
+	public void tearDown() {
+		queryExecutor.shutdown();
+	}
+
+	private void sleep() {
+		if (latencyMillis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(latencyMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Benchmark
+	public ResponseVo<OrderVo> detail() {
+		return orderService.detail(Fixtures.UID, ORDER_NO);
+	}
+
+	@Benchmark
+	public ResponseVo<PageInfo> list() {
+		try {
+			return orderService.list(Fixtures.UID, 1, PAGE_SIZE);
+		} finally {
+			//桩mapper不会消费分页参数，手动清掉
+			PageHelper.clearPage();
+		}
+	}
+}
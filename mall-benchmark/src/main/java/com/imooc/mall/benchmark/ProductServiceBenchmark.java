@@ -0,0 +1,106 @@
+package com.imooc.mall.benchmark;
+
+import com.github.pagehelper.PageHelper;
+import com.github.pagehelper.PageInfo;
+import com.imooc.mall.cache.ProductDetailCache;
+import com.imooc.mall.cache.ProductIdFilter;
+import com.imooc.mall.cache.ProductSnapshotCache;
+import com.imooc.mall.config.ExecutorConfig;
+import com.imooc.mall.config.PageCountConfig;
+import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.pojo.Product;
+import com.imooc.mall.service.impl.ProductServiceImpl;
+import com.imooc.mall.vo.ProductDetailVo;
+import com.imooc.mall.vo.ResponseVo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品列表(Product -> ProductVo)和商品详情
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+	@Param({"10", "50"})
+	private int pageSize;
+
+	private ProductServiceImpl productService;
+
+	@Setup
+	public void setup() {
+		List<Product> productList = Fixtures.products(pageSize);
+		//列表查询不带大字段
+		for (Product p : productList) {
+			p.setSubImages(null);
+			p.setDetail(null);
+		}
+		Product product = Fixtures.product(1);
+		ProductMapper productMapper = Stubs.of(ProductMapper.class)
+				.on("selectListByCategoryIdSet", args -> productList)
+				.on("countByCategoryIdSet", args -> 1000L)
+				.on("selectByPrimaryKey", args -> args[0].equals(product.getId()) ? product : null)
+				.on("selectIdAfterId", args -> args[0] == null ? productIdList(pageSize) : Collections.emptyList())
+				.on("selectIdVersion", args -> "")
+				.build();
+		ProductDetailCache productDetailCache = new ProductDetailCache();
+		Stubs.inject(productDetailCache, "redisTemplate", new InMemoryRedisTemplate());
+		Stubs.inject(productDetailCache, "productSnapshotCache", new ProductSnapshotCache());
+		ThreadPoolTaskExecutor refreshExecutor = new ExecutorConfig().cacheRefreshExecutor();
+		refreshExecutor.setDaemon(true);
+		refreshExecutor.initialize();
+		Stubs.inject(productDetailCache, "refreshExecutor", refreshExecutor);
+
+		productService = Stubs.inject(new ProductServiceImpl(), "productMapper", productMapper);
+		Stubs.inject(productService, "productDetailCache", productDetailCache);
+		ProductIdFilter productIdFilter = Stubs.inject(new ProductIdFilter(), "productMapper", productMapper);
+		productIdFilter.build();
+		Stubs.inject(productService, "productIdFilter", productIdFilter);
+		PageCountConfig pageCountConfig = new PageCountConfig();
+		Stubs.inject(productService, "pageCountConfig", pageCountConfig);
+		Stubs.inject(productService, "countCache", Stubs.countCache(pageCountConfig));
+	}
+
+	@Benchmark
+	public ResponseVo<PageInfo> list() {
+		try {
+			return productService.list(null, 1, pageSize);
+		} finally {
+			//桩mapper不会消费分页参数，手动清掉
+			PageHelper.clearPage();
+		}
+	}
+
+	/**
+	 * 热点商品，基本都命中本机缓存
+	 */
+	@Benchmark
+	public ResponseVo<ProductDetailVo> detail() {
+		return productService.detail(1);
+	}
+
+	/**
+	 * 随便填的id，布隆过滤器直接拒掉，不查数据库
+	 */
+	@Benchmark
+	public ResponseVo<ProductDetailVo> detailNotExist() {
+		return productService.detail(Integer.MAX_VALUE);
+	}
+
+	private static List<Integer> productIdList(int size) {
+		List<Integer> idList = new ArrayList<>();
+		for (int id = 1; id <= size; id++) {
+			idList.add(id);
+		}
+		return idList;
+	}
+}
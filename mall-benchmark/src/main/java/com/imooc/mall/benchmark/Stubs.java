@@ -0,0 +1,80 @@
+package com.imooc.mall.benchmark;
+
+import com.imooc.mall.cache.CountCache;
+import com.imooc.mall.config.PageCountConfig;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 压测用的桩对象：mapper接口用动态代理按方法名返回固定数据，不连数据库
+ */
+public final class Stubs {
+
+	private Stubs() {
+	}
+
+	public static <T> Builder<T> of(Class<T> type) {
+		return new Builder<>(type);
+	}
+
+	/**
+	 * 给@Autowired字段赋值
+	 */
+	public static <T> T inject(T target, String field, Object value) {
+		ReflectionTestUtils.setField(target, field, value);
+		return target;
+	}
+
+	/**
+	 * 总数缓存，注册的频道监听不会真的订阅redis
+	 */
+	public static CountCache countCache(PageCountConfig pageCountConfig) {
+		CountCache countCache = new CountCache();
+		inject(countCache, "pageCountConfig", pageCountConfig);
+		inject(countCache, "listenerContainer", new RedisMessageListenerContainer());
+		countCache.init();
+		return countCache;
+	}
+
+	public static class Builder<T> {
+
+		private final Class<T> type;
+
+		private final Map<String, Function<Object[], Object>> answers = new HashMap<>();
+
+		private Builder(Class<T> type) {
+			this.type = type;
+		}
+
+		public Builder<T> on(String method, Function<Object[], Object> answer) {
+			answers.put(method, answer);
+			return this;
+		}
+
+		@SuppressWarnings("unchecked")
+		public T build() {
+			return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+				if (method.getDeclaringClass() == Object.class) {
+					switch (method.getName()) {
+						case "equals":
+							return proxy == args[0];
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						default:
+							return type.getSimpleName() + "Stub";
+					}
+				}
+				Function<Object[], Object> answer = answers.get(method.getName());
+				if (answer == null) {
+					throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+				}
+				return answer.apply(args);
+			});
+		}
+	}
+}
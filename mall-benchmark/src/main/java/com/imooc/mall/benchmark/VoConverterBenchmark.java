@@ -0,0 +1,88 @@
+package com.imooc.mall.benchmark;
+
+import com.imooc.mall.convert.VoConverter;
+import com.imooc.mall.pojo.Order;
+import com.imooc.mall.pojo.OrderItem;
+import com.imooc.mall.pojo.Product;
+import com.imooc.mall.vo.OrderItemVo;
+import com.imooc.mall.vo.OrderVo;
+import com.imooc.mall.vo.ProductDetailVo;
+import com.imooc.mall.vo.ProductVo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.BeanUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个对象 pojo -> vo
+ * beanUtils* 是原来 BeanUtils.copyProperties 的写法，converter* 是 VoConverter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoConverterBenchmark {
+
+	private Product product;
+
+	private Order order;
+
+	private OrderItem orderItem;
+
+	@Setup
+	public void setup() {
+		product = Fixtures.product(26);
+		order = Fixtures.order(1000L);
+		orderItem = Fixtures.orderItems(1000L, 1).get(0);
+	}
+
+	@Benchmark
+	public ProductVo beanUtilsProductVo() {
+		ProductVo productVo = new ProductVo();
+		BeanUtils.copyProperties(product, productVo);
+		return productVo;
+	}
+
+	@Benchmark
+	public ProductVo converterProductVo() {
+		return VoConverter.toProductVo(product);
+	}
+
+	@Benchmark
+	public ProductDetailVo beanUtilsProductDetailVo() {
+		ProductDetailVo productDetailVo = new ProductDetailVo();
+		BeanUtils.copyProperties(product, productDetailVo);
+		return productDetailVo;
+	}
+
+	@Benchmark
+	public ProductDetailVo converterProductDetailVo() {
+		return VoConverter.toProductDetailVo(product);
+	}
+
+	@Benchmark
+	public OrderVo beanUtilsOrderVo() {
+		OrderVo orderVo = new OrderVo();
+		BeanUtils.copyProperties(order, orderVo);
+		return orderVo;
+	}
+
+	@Benchmark
+	public OrderVo converterOrderVo() {
+		return VoConverter.toOrderVo(order);
+	}
+
+	@Benchmark
+	public OrderItemVo beanUtilsOrderItemVo() {
+		OrderItemVo orderItemVo = new OrderItemVo();
+		BeanUtils.copyProperties(orderItem, orderItemVo);
+		return orderItemVo;
+	}
+
+	@Benchmark
+	public OrderItemVo converterOrderItemVo() {
+		return VoConverter.toOrderItemVo(orderItem);
+	}
+}
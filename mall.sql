@@ -183,4 +183,19 @@ CREATE TABLE `mall_pay_info` (
 
 -- 修改mall_user表字段结构
 alter table mall_user modify create_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间';
-alter table mall_user modify update_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后一次更新时间';
\ No newline at end of file
+alter table mall_user modify update_time datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后一次更新时间';
+
+-- 商品列表按 状态+类目 查询，id放在最后，按id排序、翻页时可以直接走索引
+alter table mall_product add index idx_status_category_id_id (status, category_id, id);
+
+-- 订单、收货地址按用户游标分页(user_id = ? and id < ? order by id)
+alter table mall_order add index idx_user_id_id (user_id, id);
+alter table mall_shipping add index idx_user_id_id (user_id, id);
+
+-- 启动预热统计最近的热销商品(create_time >= ? group by product_id)，覆盖索引不回表
+alter table mall_order_item add index idx_create_time_product_id_quantity (create_time, product_id, quantity);
+
+-- 超时未付款订单自动取消: 兜底扫描(status = 10 and create_time < ?)
+alter table mall_order modify create_time datetime DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间';
+alter table mall_order modify update_time datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间';
+alter table mall_order add index idx_status_create_time (status, create_time);
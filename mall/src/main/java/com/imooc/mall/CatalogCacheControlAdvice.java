@@ -0,0 +1,69 @@
+package com.imooc.mall;
+
+import com.imooc.mall.config.HttpCacheConfig;
+import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.vo.ResponseVo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * 公开的目录类接口允许浏览器、CDN缓存
+ * 只缓存成功的响应，商品不存在、已下架这类错误也是http 200，不能被CDN缓存住
+ */
+@ControllerAdvice
+public class CatalogCacheControlAdvice implements ResponseBodyAdvice<Object> {
+
+	private static final String[] CATALOG_PATHS = {"/categories", "/products", "/products/*"};
+
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	@Autowired
+	private HttpCacheConfig httpCacheConfig;
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+								  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+								  ServerHttpRequest request, ServerHttpResponse response) {
+		//类目接口直接返回字节，自己设置Cache-Control(见CategoryController)
+		if (!(body instanceof ResponseVo) || !isCatalogPath(request)) {
+			return body;
+		}
+		CacheControl cacheControl = ResponseEnum.SUCCESS.getCode().equals(((ResponseVo<?>) body).getStatus())
+				? httpCacheConfig.publicCacheControl()
+				: CacheControl.noStore();
+		response.getHeaders().set(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+		return body;
+	}
+
+	private boolean isCatalogPath(ServerHttpRequest request) {
+		if (!(request instanceof ServletServerHttpRequest)) {
+			return false;
+		}
+		String path = urlPathHelper.getLookupPathForRequest(((ServletServerHttpRequest) request).getServletRequest());
+		for (String pattern : CATALOG_PATHS) {
+			if (pathMatcher.match(pattern, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
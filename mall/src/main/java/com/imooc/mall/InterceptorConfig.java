@@ -1,5 +1,7 @@
 package com.imooc.mall;
 
+import com.imooc.mall.service.ISessionService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -10,10 +12,13 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class InterceptorConfig implements WebMvcConfigurer {
 
+	@Autowired
+	private ISessionService sessionService;
+
 	@Override
 	public void addInterceptors(InterceptorRegistry registry) {
-		registry.addInterceptor(new UserLoginInterceptor())
+		registry.addInterceptor(new UserLoginInterceptor(sessionService))
 				.addPathPatterns("/**")
-				.excludePathPatterns("/error", "/user/login", "/user/register", "/categories", "/products", "/products/*");
+				.excludePathPatterns("/error", "/user/login", "/user/register", "/categories", "/products", "/products/*", "/actuator/health");
 	}
 }
@@ -3,9 +3,12 @@ package com.imooc.mall;
 import com.imooc.mall.consts.MallConst;
 import com.imooc.mall.exception.UserLoginException;
 import com.imooc.mall.pojo.User;
+import com.imooc.mall.service.ISessionService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -15,6 +18,12 @@ import javax.servlet.http.HttpServletResponse;
 @Slf4j
 public class UserLoginInterceptor implements HandlerInterceptor {
 
+	private final ISessionService sessionService;
+
+	public UserLoginInterceptor(ISessionService sessionService) {
+		this.sessionService = sessionService;
+	}
+
 	/**
 	 * true 表示继续流程，false表示中断
 	 * @param request
@@ -26,7 +35,8 @@ public class UserLoginInterceptor implements HandlerInterceptor {
 	@Override
 	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
 		log.info("preHandle...");
-		User user = (User) request.getSession().getAttribute(MallConst.CURRENT_USER);
+		String token = getToken(request);
+		User user = StringUtils.isEmpty(token) ? null : sessionService.get(token);
 		if (user == null) {
 			log.info("user=null");
 			throw new UserLoginException();
@@ -35,6 +45,26 @@ public class UserLoginInterceptor implements HandlerInterceptor {
 //			return false;
 //			return ResponseVo.error(ResponseEnum.NEED_LOGIN);
 		}
+		request.setAttribute(MallConst.CURRENT_USER, user);
+		request.setAttribute(MallConst.TOKEN, token);
 		return true;
 	}
+
+	/**
+	 * 优先取header，其次取cookie
+	 */
+	private String getToken(HttpServletRequest request) {
+		String token = request.getHeader(MallConst.TOKEN);
+		if (!StringUtils.isEmpty(token)) {
+			return token;
+		}
+		if (request.getCookies() != null) {
+			for (Cookie cookie : request.getCookies()) {
+				if (MallConst.TOKEN.equals(cookie.getName())) {
+					return cookie.getValue();
+				}
+			}
+		}
+		return null;
+	}
 }
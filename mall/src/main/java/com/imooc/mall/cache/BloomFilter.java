@@ -0,0 +1,97 @@
+package com.imooc.mall.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * int型key的布隆过滤器，说不存在就一定不存在，说存在有fpp的概率误判
+ * 只能加不能删，可以多线程同时put和mightContain
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+
+	private final long bitSize;
+
+	private final int hashCount;
+
+	private BloomFilter(long bitSize, int hashCount) {
+		this.bits = new AtomicLongArray((int) ((bitSize + 63) >>> 6));
+		this.bitSize = bitSize;
+		this.hashCount = hashCount;
+	}
+
+	/**
+	 * @param expectedInsertions 预计放多少个，放得越多误判率越高
+	 * @param fpp                期望误判率，比如0.01
+	 */
+	public static BloomFilter create(long expectedInsertions, double fpp) {
+		if (expectedInsertions <= 0) {
+			throw new IllegalArgumentException("expectedInsertions必须大于0");
+		}
+		if (fpp <= 0 || fpp >= 1) {
+			throw new IllegalArgumentException("fpp必须在0和1之间");
+		}
+		//m = -n*ln(p)/(ln2)^2, k = m/n*ln2
+		long bitSize = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		bitSize = Math.max(64, Math.min(bitSize, Integer.MAX_VALUE));
+		int hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+		return new BloomFilter(bitSize, hashCount);
+	}
+
+	public void put(int key) {
+		long hash = mix(key);
+		int hash1 = (int) hash;
+		int hash2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long index = indexOf(hash1 + i * hash2);
+			int word = (int) (index >>> 6);
+			long mask = 1L << index;
+			long old;
+			do {
+				old = bits.get(word);
+				if ((old & mask) != 0) {
+					break;
+				}
+			} while (!bits.compareAndSet(word, old, old | mask));
+		}
+	}
+
+	public boolean mightContain(int key) {
+		long hash = mix(key);
+		int hash1 = (int) hash;
+		int hash2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long index = indexOf(hash1 + i * hash2);
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long getBitSize() {
+		return bitSize;
+	}
+
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	private long indexOf(int combinedHash) {
+		//负数取反，保证落在[0, bitSize)
+		return (combinedHash < 0 ? ~combinedHash : combinedHash) % bitSize;
+	}
+
+	/**
+	 * 连续的商品id要打散，用murmur3的fmix64
+	 */
+	private static long mix(int key) {
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
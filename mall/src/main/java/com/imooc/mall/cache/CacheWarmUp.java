@@ -0,0 +1,151 @@
+package com.imooc.mall.cache;
+
+import com.imooc.mall.config.WarmUpConfig;
+import com.imooc.mall.dao.OrderItemMapper;
+import com.imooc.mall.service.ICategoryService;
+import com.imooc.mall.service.IProductService;
+import com.imooc.mall.vo.CategoryVo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 启动预热: 类目树、最近热销商品的详情、一级类目的列表页
+ * 预热完之前 /actuator/health 返回 OUT_OF_SERVICE(503)，负载均衡不会把流量打过来
+ * 并发执行，总耗时不超过 mall.warm-up.time-budget，超时没做完的放弃
+ */
+@Component
+@Slf4j
+public class CacheWarmUp implements ApplicationRunner, HealthIndicator {
+
+	/**
+	 * 和ProductController默认的pageSize一致
+	 * 列表本身不缓存，预热的是总数缓存和数据库里对应的索引页
+	 */
+	private final static int LIST_PAGE_SIZE = 10;
+
+	@Autowired
+	private WarmUpConfig warmUpConfig;
+
+	@Autowired
+	private ICategoryService categoryService;
+
+	@Autowired
+	private IProductService productService;
+
+	@Autowired
+	private OrderItemMapper orderItemMapper;
+
+	@Autowired
+	private ProductSnapshotCache productSnapshotCache;
+
+	private volatile boolean finished;
+
+	private volatile Map<String, Object> summary = Collections.emptyMap();
+
+	@Override
+	public void run(ApplicationArguments args) {
+		if (!warmUpConfig.isEnabled()) {
+			finished = true;
+			return;
+		}
+
+		long begin = System.currentTimeMillis();
+		long deadline = begin + warmUpConfig.getTimeBudget().toMillis();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("warm-up-");
+		threadFactory.setDaemon(true);
+		ExecutorService executor = Executors.newFixedThreadPool(warmUpConfig.getParallelism(), threadFactory);
+		int total = 0;
+		int succeeded = 0;
+		try {
+			//第一轮: 类目树和热销商品id，第二轮要用
+			Future<List<CategoryVo>> categoryFuture = executor.submit(() -> {
+				categoryService.selectAllSerialized();
+				return categoryService.selectAll().getData();
+			});
+			Future<List<Integer>> hotProductFuture = executor.submit(() -> {
+				Date since = new Date(System.currentTimeMillis() - warmUpConfig.getHotProductWindow().toMillis());
+				return orderItemMapper.selectHotProductIdSince(since, warmUpConfig.getHotProductCount());
+			});
+			List<CategoryVo> categoryVoList = await(categoryFuture, deadline);
+			List<Integer> hotProductIdList = await(hotProductFuture, deadline);
+			total += 2;
+			succeeded += (categoryVoList != null ? 1 : 0) + (hotProductIdList != null ? 1 : 0);
+
+			//第二轮: 详情、购物车快照、列表页
+			List<Callable<Object>> tasks = new ArrayList<>();
+			if (hotProductIdList != null && !hotProductIdList.isEmpty()) {
+				for (Integer productId : hotProductIdList) {
+					tasks.add(() -> productService.detail(productId));
+				}
+				tasks.add(() -> productSnapshotCache.getAll(new HashSet<>(hotProductIdList)));
+			}
+			List<Integer> listCategoryIdList = new ArrayList<>();
+			listCategoryIdList.add(null);
+			if (categoryVoList != null) {
+				for (CategoryVo categoryVo : categoryVoList) {
+					listCategoryIdList.add(categoryVo.getId());
+				}
+			}
+			for (Integer categoryId : listCategoryIdList) {
+				for (int pageNum = 1; pageNum <= warmUpConfig.getListPages(); pageNum++) {
+					int page = pageNum;
+					tasks.add(() -> productService.list(categoryId, page, LIST_PAGE_SIZE));
+				}
+			}
+
+			total += tasks.size();
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining > 0 && !tasks.isEmpty()) {
+				//超时后没做完的会被取消
+				for (Future<Object> future : executor.invokeAll(tasks, remaining, TimeUnit.MILLISECONDS)) {
+					if (await(future, deadline) != null) {
+						succeeded++;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+			long cost = System.currentTimeMillis() - begin;
+			Map<String, Object> result = new LinkedHashMap<>();
+			result.put("tasks", total);
+			result.put("succeeded", succeeded);
+			result.put("costMillis", cost);
+			summary = result;
+			finished = true;
+			log.info("启动预热结束, 任务数: {}, 成功: {}, 耗时: {}ms", total, succeeded, cost);
+		}
+	}
+
+	@Override
+	public Health health() {
+		if (!finished) {
+			return Health.outOfService().withDetail("warmUp", "running").build();
+		}
+		return Health.up().withDetails(summary).build();
+	}
+
+	/**
+	 * 超时、失败返回null，不影响其他任务
+	 */
+	private <T> T await(Future<T> future, long deadline) throws InterruptedException {
+		try {
+			return future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			log.warn("预热任务失败", e.getCause());
+		} catch (TimeoutException | CancellationException e) {
+			future.cancel(true);
+		}
+		return null;
+	}
+}
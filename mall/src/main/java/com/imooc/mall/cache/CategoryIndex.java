@@ -0,0 +1,101 @@
+package com.imooc.mall.cache;
+
+import com.imooc.mall.convert.VoConverter;
+import com.imooc.mall.pojo.Category;
+import com.imooc.mall.vo.CategoryVo;
+
+import java.util.*;
+
+import static com.imooc.mall.consts.MallConst.ROOT_PARENT_ID;
+
+/**
+ * 类目索引，构建好之后不再修改
+ * parentId -> 子类目 的邻接表，提前算好每个类目的所有子孙id和返回给前端的类目树
+ */
+public class CategoryIndex {
+
+	private static final Comparator<CategoryVo> SORT_ORDER_DESC = Comparator.comparing(CategoryVo::getSortOrder,
+			Comparator.nullsFirst(Comparator.<Integer>naturalOrder())).reversed();
+
+	private final String version;
+
+	private final List<CategoryVo> tree;
+
+	private final Map<Integer, Set<Integer>> descendantIdMap;
+
+	private CategoryIndex(String version, List<CategoryVo> tree, Map<Integer, Set<Integer>> descendantIdMap) {
+		this.version = version;
+		this.tree = tree;
+		this.descendantIdMap = descendantIdMap;
+	}
+
+	public static CategoryIndex build(List<Category> categories, String version) {
+		Map<Integer, List<Category>> childrenMap = new HashMap<>();
+		for (Category category : categories) {
+			childrenMap.computeIfAbsent(category.getParentId(), k -> new ArrayList<>()).add(category);
+		}
+
+		Map<Integer, Set<Integer>> descendantIdMap = new HashMap<>();
+		for (Category category : categories) {
+			collectDescendantIds(category.getId(), childrenMap, descendantIdMap, new HashSet<>());
+		}
+		collectDescendantIds(ROOT_PARENT_ID, childrenMap, descendantIdMap, new HashSet<>());
+
+		List<CategoryVo> tree = buildTree(ROOT_PARENT_ID, childrenMap, new HashSet<>());
+		return new CategoryIndex(version, tree, descendantIdMap);
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public List<CategoryVo> getTree() {
+		return tree;
+	}
+
+	/**
+	 * 所有子孙类目id(不包含自己)
+	 */
+	public Set<Integer> getDescendantIds(Integer id) {
+		return descendantIdMap.getOrDefault(id, Collections.emptySet());
+	}
+
+	private static Set<Integer> collectDescendantIds(Integer id,
+													 Map<Integer, List<Category>> childrenMap,
+													 Map<Integer, Set<Integer>> descendantIdMap,
+													 Set<Integer> visiting) {
+		Set<Integer> cached = descendantIdMap.get(id);
+		if (cached != null) {
+			return cached;
+		}
+		//脏数据成环时不再往下找
+		if (!visiting.add(id)) {
+			return Collections.emptySet();
+		}
+
+		Set<Integer> idSet = new HashSet<>();
+		for (Category child : childrenMap.getOrDefault(id, Collections.emptyList())) {
+			idSet.add(child.getId());
+			idSet.addAll(collectDescendantIds(child.getId(), childrenMap, descendantIdMap, visiting));
+		}
+		Set<Integer> result = Collections.unmodifiableSet(idSet);
+		descendantIdMap.put(id, result);
+		return result;
+	}
+
+	private static List<CategoryVo> buildTree(Integer parentId,
+											  Map<Integer, List<Category>> childrenMap,
+											  Set<Integer> visiting) {
+		List<CategoryVo> categoryVoList = new ArrayList<>();
+		if (!visiting.add(parentId)) {
+			return categoryVoList;
+		}
+		for (Category category : childrenMap.getOrDefault(parentId, Collections.emptyList())) {
+			CategoryVo categoryVo = VoConverter.toCategoryVo(category);
+			categoryVo.setSubCategories(buildTree(category.getId(), childrenMap, visiting));
+			categoryVoList.add(categoryVo);
+		}
+		categoryVoList.sort(SORT_ORDER_DESC);
+		return Collections.unmodifiableList(categoryVoList);
+	}
+}
@@ -0,0 +1,85 @@
+package com.imooc.mall.cache;
+
+import com.imooc.mall.config.PageCountConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * 分页的总数缓存，避免每翻一页都 select count(*)
+ * 商品总数: key是类目id集合，商品有变更(product_invalidate频道)时全部失效
+ * 订单总数: key是uid，下单提交后失效
+ */
+@Component
+public class CountCache implements MeterBinder {
+
+	@Autowired
+	private PageCountConfig pageCountConfig;
+
+	@Autowired
+	private RedisMessageListenerContainer listenerContainer;
+
+	private LocalCache<String, Long> productCountCache;
+
+	private LocalCache<Integer, Long> orderCountCache;
+
+	@PostConstruct
+	public void init() {
+		productCountCache = new LocalCache<>(pageCountConfig.getMaximumSize(), pageCountConfig.getTtl().toMillis());
+		orderCountCache = new LocalCache<>(pageCountConfig.getMaximumSize(), pageCountConfig.getTtl().toMillis());
+		listenerContainer.addMessageListener((message, pattern) -> productCountCache.invalidateAll(),
+				new ChannelTopic(ProductDetailCache.PRODUCT_INVALIDATE_CHANNEL));
+	}
+
+	public long productCount(Set<Integer> categoryIdSet, Supplier<Long> loader) {
+		//顺序无关，排序后作为key
+		String key = new TreeSet<>(categoryIdSet).toString();
+		Long count = productCountCache.get(key);
+		if (count == null) {
+			count = loader.get();
+			productCountCache.put(key, count);
+		}
+		return count;
+	}
+
+	public long orderCount(Integer uid, Supplier<Long> loader) {
+		Long count = orderCountCache.get(uid);
+		if (count == null) {
+			count = loader.get();
+			orderCountCache.put(uid, count);
+		}
+		return count;
+	}
+
+	/**
+	 * 在事务里调用时，等提交之后再失效，避免提交前被别的请求用旧总数填回去
+	 */
+	public void invalidateOrderCount(Integer uid) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					orderCountCache.invalidate(uid);
+				}
+			});
+			return;
+		}
+		orderCountCache.invalidate(uid);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		LocalCacheMetrics.bind(registry, "product_count", productCountCache);
+		LocalCacheMetrics.bind(registry, "order_count", orderCountCache);
+	}
+}
@@ -0,0 +1,198 @@
+package com.imooc.mall.cache;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 进程内缓存：容量有上限(近似LRU淘汰) + 过期时间
+ * 只放热点、可以容忍短暂不一致的数据
+ * 读写都不加全局锁(ConcurrentHashMap)，每个条目记最近访问时间
+ * 超过容量时由一个线程批量淘汰最久未访问的一部分，淘汰期间其他线程照常读写，条数可能短暂超过上限
+ */
+public class LocalCache<K, V> {
+
+	/**
+	 * 超过容量时多淘汰掉容量的这个比例，不用每次put都扫一遍
+	 */
+	private final static double EVICT_RATIO = 0.1;
+
+	private final int maximumSize;
+
+	private final long ttlMillis;
+
+	private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+
+	/**
+	 * 只有一个线程淘汰，其他线程抢不到就跳过
+	 */
+	private final ReentrantLock evictLock = new ReentrantLock();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	public LocalCache(int maximumSize, long ttlMillis) {
+		this.maximumSize = maximumSize;
+		this.ttlMillis = ttlMillis;
+	}
+
+	public V get(K key) {
+		Entry<V> entry = getEntry(key, System.currentTimeMillis());
+		return entry == null ? null : entry.value;
+	}
+
+	/**
+	 * 命中了但剩余时间不到refreshAheadMillis时调用refresher提前刷新，本次照样返回旧值
+	 * refresher可能被多个线程同时调用，需要自己去重
+	 */
+	public V get(K key, long refreshAheadMillis, Consumer<K> refresher) {
+		long now = System.currentTimeMillis();
+		Entry<V> entry = getEntry(key, now);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.expireAt - now <= refreshAheadMillis) {
+			refresher.accept(key);
+		}
+		return entry.value;
+	}
+
+	private Entry<V> getEntry(K key, long now) {
+		Entry<V> entry = map.get(key);
+		if (entry == null) {
+			missCount.increment();
+			return null;
+		}
+		if (entry.expireAt <= now) {
+			//只删这个过期的，并发put进来的新值不能删
+			if (map.remove(key, entry)) {
+				evictionCount.increment();
+			}
+			missCount.increment();
+			return null;
+		}
+		//同一毫秒内只写一次，热点key少一些缓存行争用
+		if (entry.accessedAt != now) {
+			entry.accessedAt = now;
+		}
+		hitCount.increment();
+		return entry;
+	}
+
+	/**
+	 * 批量获取，只返回命中的部分
+	 */
+	public Map<K, V> getAll(Collection<K> keys) {
+		Map<K, V> result = new HashMap<>();
+		for (K key : keys) {
+			V value = get(key);
+			if (value != null) {
+				result.put(key, value);
+			}
+		}
+		return result;
+	}
+
+	public void put(K key, V value) {
+		put(key, value, ttlMillis);
+	}
+
+	public void put(K key, V value, long ttlMillis) {
+		long now = System.currentTimeMillis();
+		map.put(key, new Entry<>(value, now + ttlMillis, now));
+		if (map.size() > maximumSize) {
+			evict();
+		}
+	}
+
+	public void invalidate(K key) {
+		map.remove(key);
+	}
+
+	public void invalidateAll() {
+		map.clear();
+	}
+
+	public int size() {
+		return map.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	/**
+	 * 先删过期的，还超就按最近访问时间删掉最旧的，删到比上限少EVICT_RATIO
+	 */
+	private void evict() {
+		if (!evictLock.tryLock()) {
+			return;
+		}
+		try {
+			long now = System.currentTimeMillis();
+			for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+				if (e.getValue().expireAt <= now && map.remove(e.getKey(), e.getValue())) {
+					evictionCount.increment();
+				}
+			}
+
+			int target = maximumSize - (int) (maximumSize * EVICT_RATIO);
+			int toEvict = map.size() - target;
+			if (map.size() <= maximumSize || toEvict <= 0) {
+				return;
+			}
+			List<Map.Entry<K, Entry<V>>> snapshot = new ArrayList<>(map.entrySet());
+			if (toEvict > snapshot.size()) {
+				toEvict = snapshot.size();
+			}
+			long[] accessedAt = new long[snapshot.size()];
+			for (int i = 0; i < accessedAt.length; i++) {
+				accessedAt[i] = snapshot.get(i).getValue().accessedAt;
+			}
+			Arrays.sort(accessedAt);
+			long threshold = accessedAt[toEvict - 1];
+
+			int evicted = 0;
+			for (Map.Entry<K, Entry<V>> e : snapshot) {
+				if (evicted >= toEvict) {
+					break;
+				}
+				//期间又被访问过的留着
+				if (e.getValue().accessedAt <= threshold && map.remove(e.getKey(), e.getValue())) {
+					evicted++;
+				}
+			}
+			evictionCount.add(evicted);
+		} finally {
+			evictLock.unlock();
+		}
+	}
+
+	private static class Entry<V> {
+
+		private final V value;
+
+		private final long expireAt;
+
+		private volatile long accessedAt;
+
+		Entry(V value, long expireAt, long accessedAt) {
+			this.value = value;
+			this.expireAt = expireAt;
+			this.accessedAt = accessedAt;
+		}
+	}
+}
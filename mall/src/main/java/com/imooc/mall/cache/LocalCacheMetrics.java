@@ -0,0 +1,32 @@
+package com.imooc.mall.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 把LocalCache的命中/未命中/淘汰次数注册到micrometer
+ * 指标名和micrometer自带的缓存指标一致，/actuator/metrics/cache.gets?tag=cache:xxx 查看
+ */
+public final class LocalCacheMetrics {
+
+	private LocalCacheMetrics() {
+	}
+
+	public static void bind(MeterRegistry registry, String cacheName, LocalCache<?, ?> cache) {
+		FunctionCounter.builder("cache.gets", cache, LocalCache::getHitCount)
+				.tag("cache", cacheName)
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", cache, LocalCache::getMissCount)
+				.tag("cache", cacheName)
+				.tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("cache.evictions", cache, LocalCache::getEvictionCount)
+				.tag("cache", cacheName)
+				.register(registry);
+		Gauge.builder("cache.size", cache, LocalCache::size)
+				.tag("cache", cacheName)
+				.register(registry);
+	}
+}
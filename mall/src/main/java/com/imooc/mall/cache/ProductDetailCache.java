@@ -0,0 +1,182 @@
+package com.imooc.mall.cache;
+
+import com.google.gson.Gson;
+import com.imooc.mall.vo.ProductDetailVo;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 商品详情两级缓存: 本机(L1) -> redis(L2) -> 数据库
+ * 商品有修改时调用invalidate，删掉redis并通过频道通知所有节点删本机缓存
+ * 后台等其他系统改了商品，往 product_invalidate 频道发商品id即可
+ * 只改了库存(下单、取消)走 product_stock_invalidate 频道，只清详情和购物车快照，总数、搜索、id过滤器不用动
+ * 同一个商品并发的未命中只加载一次；热点商品快过期时后台提前刷新，请求线程不用等
+ */
+@Component
+@Slf4j
+public class ProductDetailCache implements MeterBinder {
+
+	private final static String PRODUCT_DETAIL_REDIS_KEY_TEMPLATE = "product_detail_%d";
+
+	public final static String PRODUCT_INVALIDATE_CHANNEL = "product_invalidate";
+
+	public final static String PRODUCT_STOCK_INVALIDATE_CHANNEL = "product_stock_invalidate";
+
+	private final static String CACHE_NAME = "product_detail";
+
+	private final static int L1_MAXIMUM_SIZE = 1000;
+
+	private final static long L1_TTL_MILLIS = 10 * 1000;
+
+	private final static long L2_TTL_SECONDS = 10 * 60;
+
+	/**
+	 * 本机缓存剩余不到2秒、redis剩余不到1分钟时提前刷新
+	 */
+	private final static long L1_REFRESH_AHEAD_MILLIS = 2 * 1000;
+
+	private final static long L2_REFRESH_AHEAD_SECONDS = 60;
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@Autowired
+	private RedisMessageListenerContainer listenerContainer;
+
+	@Autowired
+	private ProductSnapshotCache productSnapshotCache;
+
+	@Autowired
+	@Qualifier("cacheRefreshExecutor")
+	private ThreadPoolTaskExecutor refreshExecutor;
+
+	private Gson gson = new Gson();
+
+	private final LocalCache<Integer, ProductDetailVo> localCache = new LocalCache<>(L1_MAXIMUM_SIZE, L1_TTL_MILLIS);
+
+	private final SingleFlight<Integer, ProductDetailVo> singleFlight = new SingleFlight<>();
+
+	private final LongAdder l2HitCount = new LongAdder();
+
+	private final LongAdder l2MissCount = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		listenerContainer.addMessageListener(
+				(message, pattern) -> evictLocal(Integer.valueOf(new String(message.getBody(), StandardCharsets.UTF_8))),
+				Arrays.asList(new ChannelTopic(PRODUCT_INVALIDATE_CHANNEL), new ChannelTopic(PRODUCT_STOCK_INVALIDATE_CHANNEL)));
+	}
+
+	/**
+	 * @param loader 两级缓存都没有时从数据库加载，商品不存在返回null(不缓存)
+	 */
+	public ProductDetailVo get(Integer productId, Function<Integer, ProductDetailVo> loader) {
+		ProductDetailVo productDetailVo = localCache.get(productId, L1_REFRESH_AHEAD_MILLIS,
+				id -> refreshAhead(id, loader));
+		if (productDetailVo != null) {
+			return productDetailVo;
+		}
+		return singleFlight.load(productId, id -> load(id, loader));
+	}
+
+	private ProductDetailVo load(Integer productId, Function<Integer, ProductDetailVo> loader) {
+		String redisKey = String.format(PRODUCT_DETAIL_REDIS_KEY_TEMPLATE, productId);
+		String value = redisTemplate.opsForValue().get(redisKey);
+		if (!StringUtils.isEmpty(value)) {
+			l2HitCount.increment();
+			ProductDetailVo productDetailVo = gson.fromJson(value, ProductDetailVo.class);
+			localCache.put(productId, productDetailVo);
+			return productDetailVo;
+		}
+		l2MissCount.increment();
+		return loadFromDb(productId, loader);
+	}
+
+	private ProductDetailVo loadFromDb(Integer productId, Function<Integer, ProductDetailVo> loader) {
+		ProductDetailVo productDetailVo = loader.apply(productId);
+		if (productDetailVo == null) {
+			return null;
+		}
+		String redisKey = String.format(PRODUCT_DETAIL_REDIS_KEY_TEMPLATE, productId);
+		redisTemplate.opsForValue().set(redisKey, gson.toJson(productDetailVo), L2_TTL_SECONDS, TimeUnit.SECONDS);
+		localCache.put(productId, productDetailVo);
+		return productDetailVo;
+	}
+
+	/**
+	 * 和请求线程的加载共用一个SingleFlight，刷新中来的未命中直接等刷新结果
+	 */
+	private void refreshAhead(Integer productId, Function<Integer, ProductDetailVo> loader) {
+		singleFlight.loadAsync(productId, id -> refresh(id, loader), refreshExecutor)
+				.whenComplete((productDetailVo, e) -> {
+					if (e != null) {
+						log.warn("商品详情提前刷新失败 productId={}", productId, e);
+					}
+				});
+	}
+
+	private ProductDetailVo refresh(Integer productId, Function<Integer, ProductDetailVo> loader) {
+		//redis也快过期了就直接查库，顺便续上redis
+		Long ttl = redisTemplate.getExpire(String.format(PRODUCT_DETAIL_REDIS_KEY_TEMPLATE, productId), TimeUnit.SECONDS);
+		if (ttl != null && ttl > L2_REFRESH_AHEAD_SECONDS) {
+			return load(productId, loader);
+		}
+		return loadFromDb(productId, loader);
+	}
+
+	public void invalidate(Integer productId) {
+		invalidate(productId, PRODUCT_INVALIDATE_CHANNEL);
+	}
+
+	/**
+	 * 只有库存变了
+	 */
+	public void invalidateStock(Integer productId) {
+		invalidate(productId, PRODUCT_STOCK_INVALIDATE_CHANNEL);
+	}
+
+	private void invalidate(Integer productId, String channel) {
+		redisTemplate.delete(String.format(PRODUCT_DETAIL_REDIS_KEY_TEMPLATE, productId));
+		evictLocal(productId);
+		redisTemplate.convertAndSend(channel, String.valueOf(productId));
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		LocalCacheMetrics.bind(registry, CACHE_NAME + "_l1", localCache);
+		FunctionCounter.builder("cache.gets", l2HitCount, LongAdder::sum)
+				.tag("cache", CACHE_NAME + "_l2")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", l2MissCount, LongAdder::sum)
+				.tag("cache", CACHE_NAME + "_l2")
+				.tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("cache.loads.coalesced", singleFlight, SingleFlight::getSharedCount)
+				.tag("cache", CACHE_NAME)
+				.register(registry);
+	}
+
+	private void evictLocal(Integer productId) {
+		localCache.invalidate(productId);
+		//购物车用的商品快照也一起失效
+		productSnapshotCache.invalidate(productId);
+	}
+}
@@ -0,0 +1,258 @@
+package com.imooc.mall.cache;
+
+import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.enums.ResponseEnum;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 防缓存穿透: 随便填的商品id不查数据库
+ * 1. 启动时把所有商品id放进布隆过滤器，不在里面的一定不存在
+ * 2. 查过数据库发现不存在/下架的，短时间记住，不用每次都查
+ * 新增、上架商品后往 product_invalidate 频道发商品id，会加进过滤器并清掉记住的结果
+ * 频道消息可能丢: 紧挨着最大id的一小段(自增id新增的商品)放行查库，另外定时比对版本戳(商品数+最大id)，变了就重建
+ * 比最大id大很多的随便填的id照样走过滤器拒掉
+ * 过滤器没建好(比如启动时数据库连不上)之前全部放行
+ */
+@Component
+@Slf4j
+public class ProductIdFilter implements MeterBinder {
+
+	private final static String CACHE_NAME = "product_negative";
+
+	private final static int BUILD_BATCH_SIZE = 5000;
+
+	/**
+	 * 给运行期间新增的商品留的余量
+	 */
+	private final static int MIN_EXPECTED_INSERTIONS = 10000;
+
+	private final static double FPP = 0.01;
+
+	/**
+	 * 最大id之后多少个id放行查库，够一分钟(版本戳检查间隔)内新增的商品用
+	 */
+	private final static int NEW_ID_WINDOW = 100;
+
+	private final static int NEGATIVE_MAXIMUM_SIZE = 10000;
+
+	private final static long NEGATIVE_TTL_MILLIS = 30 * 1000;
+
+	/**
+	 * 隔多久去数据库比对一次版本戳
+	 */
+	private final static long VERSION_CHECK_INTERVAL_SECONDS = 60;
+
+	@Autowired
+	private ProductMapper productMapper;
+
+	@Autowired
+	private RedisMessageListenerContainer listenerContainer;
+
+	private volatile BuiltFilter builtFilter;
+
+	private volatile boolean building;
+
+	/**
+	 * 构建期间新增的商品，建完再补进去
+	 */
+	private final Set<Integer> addedWhileBuilding = ConcurrentHashMap.newKeySet();
+
+	private final LocalCache<Integer, ResponseEnum> negativeCache = new LocalCache<>(NEGATIVE_MAXIMUM_SIZE, NEGATIVE_TTL_MILLIS);
+
+	private final LongAdder bloomRejectCount = new LongAdder();
+
+	private ScheduledExecutorService scheduler;
+
+	@PostConstruct
+	public void init() {
+		listenerContainer.addMessageListener(
+				(message, pattern) -> put(Integer.valueOf(new String(message.getBody(), StandardCharsets.UTF_8))),
+				new ChannelTopic(ProductDetailCache.PRODUCT_INVALIDATE_CHANNEL));
+		try {
+			build();
+		} catch (RuntimeException e) {
+			log.warn("商品id过滤器构建失败, 先全部放行", e);
+		}
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("product-filter-");
+		threadFactory.setDaemon(true);
+		scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		scheduler.scheduleWithFixedDelay(this::rebuildIfChanged,
+				VERSION_CHECK_INTERVAL_SECONDS, VERSION_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * 版本戳变了(有增删商品)，或者运行期间加进来的超过了预留的容量(误判率会升高)，就重建
+	 */
+	private void rebuildIfChanged() {
+		try {
+			BuiltFilter built = builtFilter;
+			if (built != null
+					&& Objects.equals(built.version, productMapper.selectIdVersion())
+					&& built.putCount.get() <= built.expectedInsertions - built.initialCount) {
+				return;
+			}
+			build();
+		} catch (RuntimeException e) {
+			log.warn("商品id过滤器重建失败, 继续用旧的", e);
+		}
+	}
+
+	/**
+	 * 全量重建，商品id大批变动后可以手动调
+	 */
+	public synchronized void build() {
+		building = true;
+		try {
+			builtFilter = buildFilter();
+		} finally {
+			building = false;
+		}
+		BuiltFilter built = builtFilter;
+		for (Integer productId : addedWhileBuilding) {
+			addedWhileBuilding.remove(productId);
+			built.put(productId);
+		}
+	}
+
+	private BuiltFilter buildFilter() {
+		//先取版本戳，构建期间的变动下一轮检查还能发现
+		String version = productMapper.selectIdVersion();
+		List<Integer> idList = new ArrayList<>();
+		Integer lastId = null;
+		while (true) {
+			List<Integer> batch = productMapper.selectIdAfterId(lastId, BUILD_BATCH_SIZE);
+			idList.addAll(batch);
+			if (batch.size() < BUILD_BATCH_SIZE) {
+				break;
+			}
+			lastId = batch.get(batch.size() - 1);
+		}
+
+		long expectedInsertions = Math.max(idList.size() * 2L, MIN_EXPECTED_INSERTIONS);
+		BloomFilter filter = BloomFilter.create(expectedInsertions, FPP);
+		for (Integer id : idList) {
+			filter.put(id);
+		}
+		int maxId = idList.isEmpty() ? 0 : idList.get(idList.size() - 1);
+		log.info("商品id过滤器构建完成, 商品数: {}, 最大id: {}, bit数: {}, hash次数: {}",
+				idList.size(), maxId, filter.getBitSize(), filter.getHashCount());
+		return new BuiltFilter(filter, maxId, version, expectedInsertions, idList.size());
+	}
+
+	/**
+	 * @return 可以直接拒绝时返回原因，null表示需要查数据库
+	 */
+	public ResponseEnum reject(Integer productId) {
+		if (productId == null) {
+			return ResponseEnum.PRODUCT_NOT_EXIST;
+		}
+		BuiltFilter built = builtFilter;
+		//紧挨着最大id的可能是刚新增、没收到通知的，查数据库(有不存在结果的短时缓存兜着)
+		if (built != null && !built.isNewIdWindow(productId) && !built.filter.mightContain(productId)) {
+			bloomRejectCount.increment();
+			return ResponseEnum.PRODUCT_NOT_EXIST;
+		}
+		return negativeCache.get(productId);
+	}
+
+	/**
+	 * 查过数据库，商品不存在或者不能买，记住一小段时间
+	 * 库存不足不要记，库存变得太快
+	 */
+	public void markRejected(Integer productId, ResponseEnum reason) {
+		negativeCache.put(productId, reason);
+	}
+
+	/**
+	 * 新增商品或商品状态有变化
+	 */
+	public void put(Integer productId) {
+		negativeCache.invalidate(productId);
+		if (building || builtFilter == null) {
+			//正在重建，新的过滤器可能没扫到，建完再补
+			addedWhileBuilding.add(productId);
+		}
+		//先记下来再取，刚好建完时拿到的就是新的过滤器
+		BuiltFilter built = builtFilter;
+		if (built != null) {
+			built.put(productId);
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		LocalCacheMetrics.bind(registry, CACHE_NAME, negativeCache);
+		FunctionCounter.builder("product.filter.rejections", bloomRejectCount, LongAdder::sum)
+				.tag("filter", "bloom")
+				.register(registry);
+	}
+
+	private static class BuiltFilter {
+
+		private final BloomFilter filter;
+
+		/**
+		 * 运行期间加进来更大的id也会往上调
+		 */
+		private final AtomicInteger maxId;
+
+		private final String version;
+
+		private final long expectedInsertions;
+
+		private final int initialCount;
+
+		/**
+		 * 建好之后又加进来的次数
+		 */
+		private final AtomicLong putCount = new AtomicLong();
+
+		BuiltFilter(BloomFilter filter, int maxId, String version, long expectedInsertions, int initialCount) {
+			this.filter = filter;
+			this.maxId = new AtomicInteger(maxId);
+			this.version = version;
+			this.expectedInsertions = expectedInsertions;
+			this.initialCount = initialCount;
+		}
+
+		void put(Integer productId) {
+			filter.put(productId);
+			maxId.accumulateAndGet(productId, Math::max);
+			putCount.incrementAndGet();
+		}
+
+		boolean isNewIdWindow(int productId) {
+			int max = maxId.get();
+			return productId > max && productId - max <= NEW_ID_WINDOW;
+		}
+	}
+}
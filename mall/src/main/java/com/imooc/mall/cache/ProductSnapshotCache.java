@@ -0,0 +1,61 @@
+package com.imooc.mall.cache;
+
+import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.pojo.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 购物车展示用的商品快照
+ * 命中的直接返回，没命中的用一次 id in (...) 查出来
+ * 下单扣库存不能用这里的数据，要以数据库为准
+ */
+@Component
+public class ProductSnapshotCache implements MeterBinder {
+
+	private final static String CACHE_NAME = "product_snapshot";
+
+	private final static int MAXIMUM_SIZE = 10000;
+
+	private final static long TTL_MILLIS = 5 * 1000;
+
+	@Autowired
+	private ProductMapper productMapper;
+
+	private final LocalCache<Integer, Product> cache = new LocalCache<>(MAXIMUM_SIZE, TTL_MILLIS);
+
+	public Map<Integer, Product> getAll(Set<Integer> productIdSet) {
+		Map<Integer, Product> result = cache.getAll(productIdSet);
+		if (result.size() == productIdSet.size()) {
+			return result;
+		}
+
+		Set<Integer> missIdSet = new HashSet<>(productIdSet);
+		missIdSet.removeAll(result.keySet());
+		List<Product> productList = productMapper.selectByProductIdSet(missIdSet);
+		for (Product product : productList) {
+			//详情、子图很大，购物车用不上，不放进缓存
+			product.setDetail(null);
+			product.setSubImages(null);
+			cache.put(product.getId(), product);
+			result.put(product.getId(), product);
+		}
+		return result;
+	}
+
+	public void invalidate(Integer productId) {
+		cache.invalidate(productId);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		LocalCacheMetrics.bind(registry, CACHE_NAME, cache);
+	}
+}
@@ -0,0 +1,57 @@
+package com.imooc.mall.cache;
+
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 序列化好的响应体，所有用户都一样的接口直接写这些字节，不用每次再转json
+ */
+public class SerializedResponse {
+
+	private final String version;
+
+	private final byte[] json;
+
+	private final byte[] gzip;
+
+	private final String etag;
+
+	private SerializedResponse(String version, byte[] json, byte[] gzip, String etag) {
+		this.version = version;
+		this.json = json;
+		this.gzip = gzip;
+		this.etag = etag;
+	}
+
+	public static SerializedResponse of(String version, byte[] json) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+		try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+			gzipOut.write(json);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		//压缩和不压缩的内容一样，用弱ETag
+		String etag = "W/\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+		return new SerializedResponse(version, json, out.toByteArray(), etag);
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public byte[] getJson() {
+		return json;
+	}
+
+	public byte[] getGzip() {
+		return gzip;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+}
@@ -0,0 +1,96 @@
+package com.imooc.mall.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 同一个key同时只加载一次，并发的调用方共用正在进行的那次结果
+ * 缓存失效的瞬间几百个请求只会有一个打到数据库
+ * 不缓存结果，加载完就从表里删掉
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final LongAdder sharedCount = new LongAdder();
+
+	/**
+	 * 当前线程加载，已经有人在加载就等他的结果
+	 * loader抛的异常所有等待的调用方都会收到
+	 */
+	public V load(K key, Function<K, V> loader) {
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			sharedCount.increment();
+			return join(existing);
+		}
+
+		try {
+			V value = loader.apply(key);
+			future.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	/**
+	 * 丢到executor里加载，已经有人在加载就直接返回那次的future
+	 * executor满了返回异常结束的future，不会阻塞调用方
+	 */
+	public CompletableFuture<V> loadAsync(K key, Function<K, V> loader, Executor executor) {
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			sharedCount.increment();
+			return existing;
+		}
+
+		try {
+			executor.execute(() -> {
+				try {
+					future.complete(loader.apply(key));
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				} finally {
+					inFlight.remove(key, future);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			inFlight.remove(key, future);
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * 搭了别人便车的次数
+	 */
+	public long getSharedCount() {
+		return sharedCount.sum();
+	}
+
+	private V join(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			//还原成loader抛出的异常
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.imooc.mall.codec;
+
+import com.imooc.mall.pojo.Cart;
+
+/**
+ * 购物车在redis hash里的编解码
+ * field是productId，value只存数量和是否选中
+ */
+public interface CartCodec {
+
+	String encode(Cart cart);
+
+	/**
+	 * @param productId hash的field
+	 * @param value     hash的value，需要兼容旧格式
+	 */
+	Cart decode(Integer productId, String value);
+}
@@ -0,0 +1,37 @@
+package com.imooc.mall.codec;
+
+import com.google.gson.Gson;
+import com.imooc.mall.pojo.Cart;
+import org.springframework.stereotype.Component;
+
+/**
+ * 格式按首字符区分:
+ * '{'   旧格式，Gson序列化的Cart，只读不写，下次写入时转成新格式
+ * 数字  新格式，quantity << 1 | selected 的十进制字符串
+ *      纯整数的value在redis的ziplist里按整数存储，比json省内存，解析也不需要反射
+ */
+@Component
+public class PackedCartCodec implements CartCodec {
+
+	private static final char LEGACY_JSON_PREFIX = '{';
+
+	private final Gson gson = new Gson();
+
+	@Override
+	public String encode(Cart cart) {
+		long packed = ((long) cart.getQuantity() << 1) | (Boolean.TRUE.equals(cart.getProductSelected()) ? 1 : 0);
+		return Long.toString(packed);
+	}
+
+	@Override
+	public Cart decode(Integer productId, String value) {
+		if (value.charAt(0) == LEGACY_JSON_PREFIX) {
+			Cart cart = gson.fromJson(value, Cart.class);
+			cart.setProductId(productId);
+			return cart;
+		}
+
+		long packed = Long.parseLong(value);
+		return new Cart(productId, (int) (packed >>> 1), (packed & 1) == 1);
+	}
+}
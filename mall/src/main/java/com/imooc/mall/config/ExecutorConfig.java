@@ -0,0 +1,45 @@
+package com.imooc.mall.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 业务用到的线程池，都是有界的
+ */
+@Configuration
+public class ExecutorConfig {
+
+	/**
+	 * 缓存快过期时后台提前刷新，尽力而为
+	 * 队列满了就不刷了，等过期后由请求线程加载
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor cacheRefreshExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(2);
+		executor.setMaxPoolSize(4);
+		executor.setQueueCapacity(100);
+		executor.setThreadNamePrefix("cache-refresh-");
+		executor.setWaitForTasksToCompleteOnShutdown(false);
+		return executor;
+	}
+
+	/**
+	 * 一个请求里互不依赖的几个查询并发执行
+	 * 不排队(SynchronousQueue)，线程都忙时由请求线程自己执行(退化成串行)
+	 * 排队的话请求线程干等在join上，比自己串行查还慢
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor queryExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(8);
+		executor.setMaxPoolSize(16);
+		executor.setQueueCapacity(0);
+		executor.setThreadNamePrefix("query-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		return executor;
+	}
+}
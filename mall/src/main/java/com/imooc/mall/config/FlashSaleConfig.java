@@ -0,0 +1,61 @@
+package com.imooc.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 秒杀下单配置
+ */
+@Component
+@ConfigurationProperties(prefix = "mall.flash-sale")
+@Data
+public class FlashSaleConfig {
+
+	private boolean enabled = false;
+
+	/**
+	 * 参加秒杀的商品: productId -> 件数, 启动时从数据库库存里扣出来放到redis
+	 */
+	private Map<Integer, Integer> products = new HashMap<>();
+
+	/**
+	 * 预热后秒杀持续多久，到点后redis里剩下的库存还回数据库
+	 */
+	private Duration duration = Duration.ofHours(1);
+
+	/**
+	 * 落库成功或失败后，排队号再保留多久给客户端查
+	 * 排队中的排队号不过期
+	 */
+	private Duration ticketTtl = Duration.ofHours(1);
+
+	/**
+	 * 每批最多落库多少个订单(一个事务)
+	 */
+	private int batchSize = 100;
+
+	/**
+	 * 并发消费的线程数
+	 */
+	private int concurrency = 1;
+
+	/**
+	 * 队列为空时多久再拉一次
+	 */
+	private Duration pollInterval = Duration.ofMillis(200);
+
+	/**
+	 * 一条消息落库失败最多重试几次，超过了转到死信队列，不再挡住后面的消息
+	 */
+	private int maxRetries = 10;
+
+	/**
+	 * 有消息落库失败时，等多久再拉下一批
+	 */
+	private Duration retryInterval = Duration.ofSeconds(5);
+}
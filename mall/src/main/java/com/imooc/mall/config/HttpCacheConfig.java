@@ -0,0 +1,42 @@
+package com.imooc.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品、类目等公开接口的http缓存
+ * 类目用序列化好的响应体的md5做弱ETag(见SerializedResponse)，商品由ShallowEtagHeaderFilter按响应内容算md5做ETag
+ * 商品扣库存不会改update_time，所以不能用update_time当版本
+ */
+@Configuration
+@ConfigurationProperties(prefix = "mall.http-cache")
+@Data
+public class HttpCacheConfig {
+
+	/**
+	 * Cache-Control: public, max-age，浏览器和CDN在这段时间内不回源
+	 */
+	private Duration maxAge = Duration.ofSeconds(60);
+
+	/**
+	 * 只给成功的响应用(见CatalogCacheControlAdvice)
+	 */
+	public CacheControl publicCacheControl() {
+		return CacheControl.maxAge(maxAge.getSeconds(), TimeUnit.SECONDS).cachePublic();
+	}
+
+	@Bean
+	public FilterRegistrationBean<ShallowEtagHeaderFilter> productEtagFilter() {
+		FilterRegistrationBean<ShallowEtagHeaderFilter> registration = new FilterRegistrationBean<>(new ShallowEtagHeaderFilter());
+		registration.addUrlPatterns("/products", "/products/*");
+		return registration;
+	}
+}
@@ -0,0 +1,33 @@
+package com.imooc.mall.config;
+
+import com.imooc.mall.id.IdGenerator;
+import com.imooc.mall.id.SnowflakeIdGenerator;
+import lombok.Data;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 默认用雪花算法，自己定义IdGenerator的bean可以替换掉
+ */
+@Configuration
+@ConfigurationProperties(prefix = "mall.id")
+@Data
+public class IdGeneratorConfig {
+
+	/**
+	 * 机器id，每个实例必须不同(0~31)
+	 * 没有默认值，prod从环境变量 MALL_WORKER_ID 读，没配置启动失败，免得多个实例用同一个id生成重复订单号
+	 */
+	private Long workerId;
+
+	@Bean
+	@ConditionalOnMissingBean(IdGenerator.class)
+	public IdGenerator idGenerator() {
+		if (workerId == null) {
+			throw new IllegalStateException("mall.id.worker-id 未配置，每个实例需要不同的机器id");
+		}
+		return new SnowflakeIdGenerator(workerId);
+	}
+}
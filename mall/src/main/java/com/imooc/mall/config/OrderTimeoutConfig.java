@@ -0,0 +1,38 @@
+package com.imooc.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 超时未付款订单自动取消配置
+ */
+@Component
+@ConfigurationProperties(prefix = "mall.order-timeout")
+@Data
+public class OrderTimeoutConfig {
+
+	private boolean enabled = true;
+
+	/**
+	 * 下单后多久不付款自动取消
+	 */
+	private Duration timeout = Duration.ofMinutes(30);
+
+	/**
+	 * 每批最多关闭多少个订单(一个事务)
+	 */
+	private int batchSize = 100;
+
+	/**
+	 * 没有到期订单时多久再看一次
+	 */
+	private Duration pollInterval = Duration.ofSeconds(1);
+
+	/**
+	 * 多久扫一次数据库兜底(redis里丢了的、上线前的老订单)
+	 */
+	private Duration dbScanInterval = Duration.ofMinutes(5);
+}
@@ -0,0 +1,29 @@
+package com.imooc.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 分页总数缓存配置
+ */
+@Component
+@ConfigurationProperties(prefix = "mall.page-count")
+@Data
+public class PageCountConfig {
+
+	/**
+	 * 总数缓存多久，期间新增的数据不会反映到总数上
+	 */
+	private Duration ttl = Duration.ofSeconds(30);
+
+	private int maximumSize = 10000;
+
+	/**
+	 * 商品总数最多数到多少，超过的只返回"至少这么多"(totalApproximate=true)
+	 * 0表示不限制，总是精确计数
+	 */
+	private long approximateThreshold = 0;
+}
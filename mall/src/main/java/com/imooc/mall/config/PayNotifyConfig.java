@@ -0,0 +1,36 @@
+package com.imooc.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 支付通知(payNotify队列)消费配置
+ */
+@Component
+@ConfigurationProperties(prefix = "mall.pay-notify")
+@Data
+public class PayNotifyConfig {
+
+	/**
+	 * true: 批量拉取消费；false: 逐条消费
+	 */
+	private boolean batchEnabled = false;
+
+	/**
+	 * 每批最多处理的消息数，也是prefetch(broker最多推这么多条没ack的过来)
+	 */
+	private int batchSize = 100;
+
+	/**
+	 * 并发消费的线程数
+	 */
+	private int concurrency = 2;
+
+	/**
+	 * 攒不够一批时最多等多久就处理
+	 */
+	private Duration pollInterval = Duration.ofMillis(500);
+}
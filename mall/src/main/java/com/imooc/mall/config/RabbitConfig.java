@@ -0,0 +1,28 @@
+package com.imooc.mall.config;
+
+import org.springframework.amqp.core.Queue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static com.imooc.mall.listener.FlashSaleOrderConsumer.QUEUE_FLASH_SALE_ORDER;
+import static com.imooc.mall.listener.FlashSaleOrderConsumer.QUEUE_FLASH_SALE_ORDER_DEAD;
+
+/**
+ * 本项目自己生产、自己消费的队列，启动后由RabbitAdmin自动声明
+ */
+@Configuration
+public class RabbitConfig {
+
+	@Bean
+	public Queue flashSaleOrderQueue() {
+		return new Queue(QUEUE_FLASH_SALE_ORDER, true);
+	}
+
+	/**
+	 * 重试多次仍然落不了库的秒杀消息
+	 */
+	@Bean
+	public Queue flashSaleOrderDeadQueue() {
+		return new Queue(QUEUE_FLASH_SALE_ORDER_DEAD, true);
+	}
+}
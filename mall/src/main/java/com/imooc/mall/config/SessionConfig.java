@@ -0,0 +1,28 @@
+package com.imooc.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 登录态(token+redis)配置
+ */
+@Component
+@ConfigurationProperties(prefix = "mall.session")
+@Data
+public class SessionConfig {
+
+	/**
+	 * 多久不访问就过期
+	 */
+	private Duration timeout = Duration.ofMinutes(30);
+
+	/**
+	 * 本机缓存时间，越短越快感知其他节点的登出
+	 */
+	private Duration nearCacheTtl = Duration.ofSeconds(5);
+
+	private int nearCacheSize = 10000;
+}
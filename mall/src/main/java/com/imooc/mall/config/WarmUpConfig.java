@@ -0,0 +1,40 @@
+package com.imooc.mall.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 启动预热配置
+ */
+@Component
+@ConfigurationProperties(prefix = "mall.warm-up")
+@Data
+public class WarmUpConfig {
+
+	private boolean enabled = true;
+
+	/**
+	 * 预热最多花多久，到时间没做完的放弃，照样对外提供服务
+	 */
+	private Duration timeBudget = Duration.ofSeconds(30);
+
+	/**
+	 * 同时跑几个预热任务，别把数据库压垮
+	 */
+	private int parallelism = 4;
+
+	/**
+	 * 预热最近多少天卖得最多的前N个商品
+	 */
+	private int hotProductCount = 200;
+
+	private Duration hotProductWindow = Duration.ofDays(7);
+
+	/**
+	 * 每个一级类目预热前几页
+	 */
+	private int listPages = 1;
+}
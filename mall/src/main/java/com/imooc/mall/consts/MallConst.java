@@ -6,5 +6,35 @@ package com.imooc.mall.consts;
 public class MallConst {
 	public static final String CURRENT_USER = "currentUser";
 
+	/**
+	 * 登录后的token, cookie名和header名都用它
+	 */
+	public static final String TOKEN = "token";
+
 	public static final Integer ROOT_PARENT_ID = 0;
+
+	/**
+	 * 等待超时取消的订单, zset: member=订单号, score=到期时间戳(毫秒)
+	 */
+	public static final String ORDER_TIMEOUT_REDIS_KEY = "order_timeout";
+
+	/**
+	 * 秒杀库存, string: 剩余件数, 预热时从数据库搬过来
+	 */
+	public static final String FLASH_SALE_STOCK_REDIS_KEY_TEMPLATE = "flash_sale_stock_%d";
+
+	/**
+	 * 秒杀结束时间, string: 时间戳(毫秒), 到点后剩余库存还回数据库
+	 */
+	public static final String FLASH_SALE_END_REDIS_KEY_TEMPLATE = "flash_sale_end_%d";
+
+	/**
+	 * 抢到过的用户, set: member=uid, 每人限购一件
+	 */
+	public static final String FLASH_SALE_BUYERS_REDIS_KEY_TEMPLATE = "flash_sale_buyers_%d";
+
+	/**
+	 * 秒杀排队号(就是订单号), hash: uid、status、msg
+	 */
+	public static final String FLASH_SALE_TICKET_REDIS_KEY_TEMPLATE = "flash_sale_ticket_%d";
 }
@@ -10,7 +10,6 @@ import com.imooc.mall.vo.ResponseVo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
-import javax.servlet.http.HttpSession;
 import javax.validation.Valid;
 
 /**
@@ -23,48 +22,41 @@ public class CartController {
 	private ICartService cartService;
 
 	@GetMapping("/carts")
-	public ResponseVo<CartVo> list(HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+	public ResponseVo<CartVo> list(@RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return cartService.list(user.getId());
 	}
 
 	@PostMapping("/carts")
 	public ResponseVo<CartVo> add(@Valid @RequestBody CartAddForm cartAddForm,
-								  HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+								  @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return cartService.add(user.getId(), cartAddForm);
 	}
 
 	@PutMapping("/carts/{productId}")
 	public ResponseVo<CartVo> update(@PathVariable Integer productId,
 									 @Valid @RequestBody CartUpdateForm form,
-									 HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+									 @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return cartService.update(user.getId(), productId, form);
 	}
 
 	@DeleteMapping("/carts/{productId}")
 	public ResponseVo<CartVo> delete(@PathVariable Integer productId,
-									 HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+									 @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return cartService.delete(user.getId(), productId);
 	}
 
 	@PutMapping("/carts/selectAll")
-	public ResponseVo<CartVo> selectAll(HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+	public ResponseVo<CartVo> selectAll(@RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return cartService.selectAll(user.getId());
 	}
 
 	@PutMapping("/carts/unSelectAll")
-	public ResponseVo<CartVo> unSelectAll(HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+	public ResponseVo<CartVo> unSelectAll(@RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return cartService.unSelectAll(user.getId());
 	}
 
 	@GetMapping("/carts/products/sum")
-	public ResponseVo<Integer> sum(HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+	public ResponseVo<Integer> sum(@RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return cartService.sum(user.getId());
 	}
 }
@@ -1,14 +1,16 @@
 package com.imooc.mall.controller;
 
+import com.imooc.mall.cache.SerializedResponse;
+import com.imooc.mall.config.HttpCacheConfig;
 import com.imooc.mall.service.ICategoryService;
-import com.imooc.mall.vo.CategoryVo;
-import com.imooc.mall.vo.ResponseVo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-
 /**
  * Created by 廖师兄
  */
@@ -18,8 +20,61 @@ public class CategoryController {
 	@Autowired
 	private ICategoryService categoryService;
 
+	@Autowired
+	private HttpCacheConfig httpCacheConfig;
+
+	/**
+	 * 直接写序列化好的字节，客户端支持gzip就写压缩过的
+	 * 带了ETag的ResponseEntity，If-None-Match匹配时spring会直接返回304
+	 */
 	@GetMapping("/categories")
-	public ResponseVo<List<CategoryVo>> selectAll() {
-		return categoryService.selectAll();
+	public ResponseEntity<byte[]> selectAll(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		SerializedResponse response = categoryService.selectAllSerialized();
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.eTag(response.getEtag())
+				.cacheControl(httpCacheConfig.publicCacheControl())
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (acceptsGzip(acceptEncoding)) {
+			return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(response.getGzip());
+		}
+		return builder.body(response.getJson());
+	}
+
+	/**
+	 * 按q值判断，gzip;q=0表示明确不要，即使还带了*
+	 * q值写错的当成0
+	 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		Boolean gzip = null;
+		boolean wildcard = false;
+		for (String item : acceptEncoding.split(",")) {
+			String[] parts = item.split(";");
+			String coding = parts[0].trim();
+			boolean accepted = quality(parts) > 0;
+			if ("gzip".equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding)) {
+				gzip = accepted;
+			} else if ("*".equals(coding)) {
+				wildcard = accepted;
+			}
+		}
+		return gzip != null ? gzip : wildcard;
+	}
+
+	private static double quality(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String param = parts[i].trim();
+			if (param.length() > 1 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+				try {
+					return Double.parseDouble(param.substring(2).trim());
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 1;
 	}
 }
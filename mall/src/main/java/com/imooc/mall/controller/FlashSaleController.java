@@ -0,0 +1,34 @@
+package com.imooc.mall.controller;
+
+import com.imooc.mall.consts.MallConst;
+import com.imooc.mall.form.FlashSaleForm;
+import com.imooc.mall.pojo.User;
+import com.imooc.mall.service.IFlashSaleService;
+import com.imooc.mall.vo.FlashSaleTicketVo;
+import com.imooc.mall.vo.ResponseVo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+/**
+ * 秒杀下单，返回排队号后轮询，下单成功后用排队号(订单号)查订单详情
+ */
+@RestController
+public class FlashSaleController {
+
+	@Autowired
+	private IFlashSaleService flashSaleService;
+
+	@PostMapping("/flash-sale/orders")
+	public ResponseVo<FlashSaleTicketVo> create(@Valid @RequestBody FlashSaleForm form,
+												@RequestAttribute(MallConst.CURRENT_USER) User user) {
+		return flashSaleService.create(user.getId(), form.getProductId(), form.getShippingId());
+	}
+
+	@GetMapping("/flash-sale/tickets/{orderNo}")
+	public ResponseVo<FlashSaleTicketVo> ticket(@PathVariable Long orderNo,
+												@RequestAttribute(MallConst.CURRENT_USER) User user) {
+		return flashSaleService.ticket(user.getId(), orderNo);
+	}
+}
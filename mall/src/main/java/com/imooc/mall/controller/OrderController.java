@@ -5,12 +5,12 @@ import com.imooc.mall.consts.MallConst;
 import com.imooc.mall.form.OrderCreateForm;
 import com.imooc.mall.pojo.User;
 import com.imooc.mall.service.IOrderService;
+import com.imooc.mall.vo.CursorPageVo;
 import com.imooc.mall.vo.OrderVo;
 import com.imooc.mall.vo.ResponseVo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
-import javax.servlet.http.HttpSession;
 import javax.validation.Valid;
 
 /**
@@ -24,30 +24,36 @@ public class OrderController {
 
 	@PostMapping("/orders")
 	public ResponseVo<OrderVo> create(@Valid @RequestBody OrderCreateForm form,
-									  HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+									  @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return orderService.create(user.getId(), form.getShippingId());
 	}
 
 	@GetMapping("/orders")
 	public ResponseVo<PageInfo> list(@RequestParam Integer pageNum,
 									 @RequestParam Integer pageSize,
-									 HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+									 @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return orderService.list(user.getId(), pageNum, pageSize);
 	}
 
+	/**
+	 * 带了cursor参数走游标分页，第一页传 cursor=
+	 */
+	@GetMapping(value = "/orders", params = "cursor")
+	public ResponseVo<CursorPageVo<OrderVo>> listByCursor(@RequestParam String cursor,
+														  @RequestParam(required = false, defaultValue = "10") Integer pageSize,
+														  @RequestAttribute(MallConst.CURRENT_USER) User user) {
+		return orderService.listByCursor(user.getId(), cursor, pageSize);
+	}
+
 	@GetMapping("/orders/{orderNo}")
 	public ResponseVo<OrderVo> detail(@PathVariable Long orderNo,
-									  HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+									  @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return orderService.detail(user.getId(), orderNo);
 	}
 
 	@PutMapping("/orders/{orderNo}")
 	public ResponseVo cancel(@PathVariable Long orderNo,
-							 HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+							 @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return orderService.cancel(user.getId(), orderNo);
 	}
 }
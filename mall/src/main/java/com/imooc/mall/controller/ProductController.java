@@ -1,8 +1,11 @@
 package com.imooc.mall.controller;
 
 import com.github.pagehelper.PageInfo;
+import com.imooc.mall.service.IProductSearchService;
 import com.imooc.mall.service.IProductService;
+import com.imooc.mall.vo.CursorPageVo;
 import com.imooc.mall.vo.ProductDetailVo;
+import com.imooc.mall.vo.ProductVo;
 import com.imooc.mall.vo.ResponseVo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,6 +22,9 @@ public class ProductController {
 	@Autowired
 	private IProductService productService;
 
+	@Autowired
+	private IProductSearchService productSearchService;
+
 	@GetMapping("/products")
 	public ResponseVo<PageInfo> list(@RequestParam(required = false) Integer categoryId,
 									 @RequestParam(required = false, defaultValue = "1") Integer pageNum,
@@ -26,6 +32,23 @@ public class ProductController {
 		return productService.list(categoryId, pageNum, pageSize);
 	}
 
+	/**
+	 * 带了cursor参数走游标分页，第一页传 cursor=
+	 */
+	@GetMapping(value = "/products", params = "cursor")
+	public ResponseVo<CursorPageVo<ProductVo>> listByCursor(@RequestParam(required = false) Integer categoryId,
+															@RequestParam String cursor,
+															@RequestParam(required = false, defaultValue = "10") Integer pageSize) {
+		return productService.listByCursor(categoryId, cursor, pageSize);
+	}
+
+	@GetMapping("/products/search")
+	public ResponseVo<PageInfo> search(@RequestParam String keyword,
+									   @RequestParam(required = false, defaultValue = "1") Integer pageNum,
+									   @RequestParam(required = false, defaultValue = "10") Integer pageSize) {
+		return productSearchService.search(keyword, pageNum, pageSize);
+	}
+
 	@GetMapping("/products/{productId}")
 	public ResponseVo<ProductDetailVo> detail(@PathVariable Integer productId) {
 		return productService.detail(productId);
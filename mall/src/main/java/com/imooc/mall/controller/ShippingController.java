@@ -8,7 +8,6 @@ import com.imooc.mall.vo.ResponseVo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
-import javax.servlet.http.HttpSession;
 import javax.validation.Valid;
 
 /**
@@ -22,31 +21,37 @@ public class ShippingController {
 
 	@PostMapping("/shippings")
 	public ResponseVo add(@Valid @RequestBody ShippingForm form,
-						  HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+						  @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return shippingService.add(user.getId(), form);
 	}
 
 	@DeleteMapping("/shippings/{shippingId}")
 	public ResponseVo delete(@PathVariable Integer shippingId,
-							 HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+							 @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return shippingService.delete(user.getId(), shippingId);
 	}
 
 	@PutMapping("/shippings/{shippingId}")
 	public ResponseVo update(@PathVariable Integer shippingId,
 							 @Valid @RequestBody ShippingForm form,
-							 HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+							 @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return shippingService.update(user.getId(), shippingId, form);
 	}
 
 	@GetMapping("/shippings")
 	public ResponseVo list(@RequestParam(required = false, defaultValue = "1") Integer pageNum,
 						   @RequestParam(required = false, defaultValue = "10") Integer pageSize,
-						   HttpSession session) {
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+						   @RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return shippingService.list(user.getId(), pageNum, pageSize);
 	}
+
+	/**
+	 * 带了cursor参数走游标分页，第一页传 cursor=
+	 */
+	@GetMapping(value = "/shippings", params = "cursor")
+	public ResponseVo listByCursor(@RequestParam String cursor,
+								   @RequestParam(required = false, defaultValue = "10") Integer pageSize,
+								   @RequestAttribute(MallConst.CURRENT_USER) User user) {
+		return shippingService.listByCursor(user.getId(), cursor, pageSize);
+	}
 }
@@ -4,18 +4,16 @@ import com.imooc.mall.consts.MallConst;
 import com.imooc.mall.form.UserLoginForm;
 import com.imooc.mall.form.UserRegisterForm;
 import com.imooc.mall.pojo.User;
+import com.imooc.mall.service.ISessionService;
 import com.imooc.mall.service.IUserService;
 import com.imooc.mall.vo.ResponseVo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 
-import javax.servlet.http.HttpSession;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 
 /**
@@ -28,6 +26,9 @@ public class UserController {
 	@Autowired
 	private IUserService userService;
 
+	@Autowired
+	private ISessionService sessionService;
+
 	@PostMapping("/user/register")
 	public ResponseVo<User> register(@Valid @RequestBody UserRegisterForm userForm) {
 		User user = new User();
@@ -38,31 +39,40 @@ public class UserController {
 
 	@PostMapping("/user/login")
 	public ResponseVo<User> login(@Valid @RequestBody UserLoginForm userLoginForm,
-								  HttpSession session) {
+								  HttpServletResponse response) {
 		ResponseVo<User> userResponseVo = userService.login(userLoginForm.getUsername(), userLoginForm.getPassword());
+		if (userResponseVo.getData() == null) {
+			return userResponseVo;
+		}
 
-		//设置Session
-		session.setAttribute(MallConst.CURRENT_USER, userResponseVo.getData());
-		log.info("/login sessionId={}", session.getId());
+		//登录态存redis，token写到cookie和header
+		String token = sessionService.create(userResponseVo.getData());
+		//会话cookie，不设max-age：redis里的过期时间每次访问都会续，cookie跟着浏览器走
+		response.addCookie(buildTokenCookie(token, -1));
+		response.setHeader(MallConst.TOKEN, token);
+		log.info("/login uid={}", userResponseVo.getData().getId());
 
 		return userResponseVo;
 	}
 
-	//session保存在内存里，改进版：token+redis
 	@GetMapping("/user")
-	public ResponseVo<User> userInfo(HttpSession session) {
-		log.info("/user sessionId={}", session.getId());
-		User user = (User) session.getAttribute(MallConst.CURRENT_USER);
+	public ResponseVo<User> userInfo(@RequestAttribute(MallConst.CURRENT_USER) User user) {
 		return ResponseVo.success(user);
 	}
 
-	/**
-	 * {@link TomcatServletWebServerFactory} getSessionTimeoutInMinutes
-	 */
 	@PostMapping("/user/logout")
-	public ResponseVo logout(HttpSession session) {
-		log.info("/user/logout sessionId={}", session.getId());
-		session.removeAttribute(MallConst.CURRENT_USER);
+	public ResponseVo logout(@RequestAttribute(MallConst.TOKEN) String token,
+							 HttpServletResponse response) {
+		sessionService.remove(token);
+		response.addCookie(buildTokenCookie("", 0));
 		return ResponseVo.success();
 	}
+
+	private Cookie buildTokenCookie(String token, int maxAge) {
+		Cookie cookie = new Cookie(MallConst.TOKEN, token);
+		cookie.setPath("/");
+		cookie.setHttpOnly(true);
+		cookie.setMaxAge(maxAge);
+		return cookie;
+	}
 }
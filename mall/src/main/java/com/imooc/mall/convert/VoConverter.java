@@ -0,0 +1,111 @@
+package com.imooc.mall.convert;
+
+import com.imooc.mall.form.ShippingForm;
+import com.imooc.mall.pojo.Category;
+import com.imooc.mall.pojo.Order;
+import com.imooc.mall.pojo.OrderItem;
+import com.imooc.mall.pojo.Product;
+import com.imooc.mall.pojo.Shipping;
+import com.imooc.mall.vo.CategoryVo;
+import com.imooc.mall.vo.OrderItemVo;
+import com.imooc.mall.vo.OrderVo;
+import com.imooc.mall.vo.ProductDetailVo;
+import com.imooc.mall.vo.ProductVo;
+
+/**
+ * pojo -> vo 的转换，直接get/set，代替列表等热点路径上的 BeanUtils.copyProperties(反射)
+ * 拷贝的字段和 BeanUtils.copyProperties 完全一致(同名同类型的属性)，由 VoConverterTest 保证
+ * pojo或vo加了字段，这里要跟着加，不然测试会失败
+ */
+public final class VoConverter {
+
+	private VoConverter() {
+	}
+
+	public static ProductVo toProductVo(Product product) {
+		ProductVo productVo = new ProductVo();
+		productVo.setId(product.getId());
+		productVo.setCategoryId(product.getCategoryId());
+		productVo.setName(product.getName());
+		productVo.setSubtitle(product.getSubtitle());
+		productVo.setMainImage(product.getMainImage());
+		productVo.setStatus(product.getStatus());
+		productVo.setPrice(product.getPrice());
+		return productVo;
+	}
+
+	public static ProductDetailVo toProductDetailVo(Product product) {
+		ProductDetailVo productDetailVo = new ProductDetailVo();
+		productDetailVo.setId(product.getId());
+		productDetailVo.setCategoryId(product.getCategoryId());
+		productDetailVo.setName(product.getName());
+		productDetailVo.setSubtitle(product.getSubtitle());
+		productDetailVo.setMainImage(product.getMainImage());
+		productDetailVo.setSubImages(product.getSubImages());
+		productDetailVo.setDetail(product.getDetail());
+		productDetailVo.setPrice(product.getPrice());
+		productDetailVo.setStock(product.getStock());
+		productDetailVo.setStatus(product.getStatus());
+		productDetailVo.setCreateTime(product.getCreateTime());
+		productDetailVo.setUpdateTime(product.getUpdateTime());
+		return productDetailVo;
+	}
+
+	/**
+	 * 不包含subCategories
+	 */
+	public static CategoryVo toCategoryVo(Category category) {
+		CategoryVo categoryVo = new CategoryVo();
+		categoryVo.setId(category.getId());
+		categoryVo.setParentId(category.getParentId());
+		categoryVo.setName(category.getName());
+		categoryVo.setSortOrder(category.getSortOrder());
+		return categoryVo;
+	}
+
+	/**
+	 * 不包含orderItemVoList、shippingVo
+	 */
+	public static OrderVo toOrderVo(Order order) {
+		OrderVo orderVo = new OrderVo();
+		orderVo.setOrderNo(order.getOrderNo());
+		orderVo.setPayment(order.getPayment());
+		orderVo.setPaymentType(order.getPaymentType());
+		orderVo.setPostage(order.getPostage());
+		orderVo.setStatus(order.getStatus());
+		orderVo.setPaymentTime(order.getPaymentTime());
+		orderVo.setSendTime(order.getSendTime());
+		orderVo.setEndTime(order.getEndTime());
+		orderVo.setCloseTime(order.getCloseTime());
+		orderVo.setCreateTime(order.getCreateTime());
+		orderVo.setShippingId(order.getShippingId());
+		return orderVo;
+	}
+
+	public static OrderItemVo toOrderItemVo(OrderItem orderItem) {
+		OrderItemVo orderItemVo = new OrderItemVo();
+		orderItemVo.setOrderNo(orderItem.getOrderNo());
+		orderItemVo.setProductId(orderItem.getProductId());
+		orderItemVo.setProductName(orderItem.getProductName());
+		orderItemVo.setProductImage(orderItem.getProductImage());
+		orderItemVo.setCurrentUnitPrice(orderItem.getCurrentUnitPrice());
+		orderItemVo.setQuantity(orderItem.getQuantity());
+		orderItemVo.setTotalPrice(orderItem.getTotalPrice());
+		orderItemVo.setCreateTime(orderItem.getCreateTime());
+		return orderItemVo;
+	}
+
+	/**
+	 * 表单内容写到已有的shipping上，其他字段不动
+	 */
+	public static void copyToShipping(ShippingForm form, Shipping shipping) {
+		shipping.setReceiverName(form.getReceiverName());
+		shipping.setReceiverPhone(form.getReceiverPhone());
+		shipping.setReceiverMobile(form.getReceiverMobile());
+		shipping.setReceiverProvince(form.getReceiverProvince());
+		shipping.setReceiverCity(form.getReceiverCity());
+		shipping.setReceiverDistrict(form.getReceiverDistrict());
+		shipping.setReceiverAddress(form.getReceiverAddress());
+		shipping.setReceiverZip(form.getReceiverZip());
+	}
+}
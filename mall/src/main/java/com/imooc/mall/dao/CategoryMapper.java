@@ -18,4 +18,9 @@ public interface CategoryMapper {
     int updateByPrimaryKey(Category record);
 
     List<Category> selectAll();
+
+    /**
+     * 类目数据的版本戳，类目有增删改时会变化
+     */
+    String selectVersion();
 }
\ No newline at end of file
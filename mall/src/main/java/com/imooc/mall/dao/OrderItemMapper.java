@@ -3,6 +3,7 @@ package com.imooc.mall.dao;
 import com.imooc.mall.pojo.OrderItem;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
 
@@ -22,4 +23,10 @@ public interface OrderItemMapper {
     int batchInsert(@Param("orderItemList") List<OrderItem> orderItemList);
 
     List<OrderItem> selectByOrderNoSet(@Param("orderNoSet") Set orderNoSet);
+
+    /**
+     * since之后按销量从高到低的商品id
+     */
+    List<Integer> selectHotProductIdSince(@Param("since") Date since,
+                                          @Param("limit") int limit);
 }
\ No newline at end of file
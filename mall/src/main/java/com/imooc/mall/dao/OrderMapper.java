@@ -1,8 +1,11 @@
 package com.imooc.mall.dao;
 
 import com.imooc.mall.pojo.Order;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 public interface OrderMapper {
     int deleteByPrimaryKey(Integer id);
@@ -19,5 +22,60 @@ public interface OrderMapper {
 
     List<Order> selectByUid(Integer uid);
 
+    long countByUid(Integer uid);
+
+    /**
+     * 游标分页: id < lastId 按id降序(新订单在前)取limit条, lastId为null从最新的开始
+     */
+    List<Order> selectByUidBeforeId(@Param("uid") Integer uid,
+                                    @Param("lastId") Integer lastId,
+                                    @Param("limit") int limit);
+
     Order selectByOrderNo(Long orderNo);
-}
\ No newline at end of file
+
+    List<Order> selectByOrderNoSet(@Param("orderNoSet") Set<Long> orderNoSet);
+
+    /**
+     * 单个订单的状态流转(CAS): 只有当前状态是fromStatus才改成toStatus, 一条sql
+     * time按目标状态写到对应字段: 已付款->payment_time, 已发货->send_time, 交易成功->end_time, 已取消/交易关闭->close_time
+     * @return 1表示流转成功, 0表示订单不存在或者状态已经变了
+     */
+    int updateStatusIfCurrent(@Param("orderNo") Long orderNo,
+                              @Param("fromStatus") Integer fromStatus,
+                              @Param("toStatus") Integer toStatus,
+                              @Param("time") Date time);
+
+    /**
+     * 批量修改订单状态, 只改当前状态为fromStatus的, 返回实际修改的行数
+     * paymentTime、closeTime为null时不修改
+     */
+    int batchUpdateStatus(@Param("orderNoSet") Set<Long> orderNoSet,
+                          @Param("fromStatus") Integer fromStatus,
+                          @Param("toStatus") Integer toStatus,
+                          @Param("paymentTime") Date paymentTime,
+                          @Param("closeTime") Date closeTime);
+
+    /**
+     * 锁住其中状态为status的订单, 返回它们的订单号
+     * 必须在事务里调用
+     */
+    List<Long> selectOrderNoByStatusForUpdate(@Param("orderNoSet") Set<Long> orderNoSet,
+                                              @Param("status") Integer status);
+
+    /**
+     * createTime之前创建、状态为status的订单号, 按创建时间升序
+     */
+    List<Long> selectOrderNoByStatusCreatedBefore(@Param("status") Integer status,
+                                                  @Param("createTime") Date createTime,
+                                                  @Param("limit") int limit);
+
+    /**
+     * 批量插入订单, create_time、update_time用数据库默认值
+     */
+    int batchInsert(@Param("orderList") List<Order> orderList);
+
+    /**
+     * 其中已经存在的订单号
+     */
+    List<Long> selectOrderNoByOrderNoSet(@Param("orderNoSet") Set<Long> orderNoSet);
+}
@@ -4,6 +4,7 @@ import com.imooc.mall.pojo.Product;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface ProductMapper {
@@ -19,7 +20,51 @@ public interface ProductMapper {
 
     int updateByPrimaryKey(Product record);
 
-    List<Product> selectByCategoryIdSet(@Param("categoryIdSet") Set<Integer> categoryIdSet);
+    /**
+     * 列表页用，只查ProductVo需要的字段，detail、subImages等都是null
+     */
+    List<Product> selectListByCategoryIdSet(@Param("categoryIdSet") Set<Integer> categoryIdSet);
+
+    /**
+     * 列表页的总数
+     * @param limit 最多数到多少, null表示精确计数
+     */
+    long countByCategoryIdSet(@Param("categoryIdSet") Set<Integer> categoryIdSet,
+                              @Param("limit") Long limit);
+
+    /**
+     * 游标分页: id > lastId 按id升序取limit条, lastId为null从头开始
+     */
+    List<Product> selectListByCategoryIdSetAfterId(@Param("categoryIdSet") Set<Integer> categoryIdSet,
+                                                   @Param("lastId") Integer lastId,
+                                                   @Param("limit") int limit);
+
+    /**
+     * 按id升序分批取所有商品id(不管状态), lastId为null从头开始
+     */
+    List<Integer> selectIdAfterId(@Param("lastId") Integer lastId,
+                                  @Param("limit") int limit);
+
+    /**
+     * 在售商品搜索字段的版本戳, 不包含库存, 下单扣库存不会变
+     */
+    String selectSearchVersion();
+
+    /**
+     * 商品id的版本戳(商品数-最大id), 有增删就会变
+     */
+    String selectIdVersion();
 
     List<Product> selectByProductIdSet(@Param("productIdSet") Set<Integer> productIdSet);
+
+    /**
+     * 按 productId -> 数量 批量扣库存, 只扣库存足够的行
+     * 返回值小于map的大小说明有商品库存不足
+     */
+    int batchDecreaseStock(@Param("quantityMap") Map<Integer, Integer> quantityMap);
+
+    /**
+     * 按 productId -> 数量 批量加库存(取消订单还库存)
+     */
+    int batchIncreaseStock(@Param("quantityMap") Map<Integer, Integer> quantityMap);
 }
\ No newline at end of file
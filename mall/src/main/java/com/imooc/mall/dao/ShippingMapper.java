@@ -24,6 +24,13 @@ public interface ShippingMapper {
 
     List<Shipping> selectByUid(Integer uid);
 
+    /**
+     * 游标分页: id > lastId 按id升序取limit条, lastId为null从头开始
+     */
+    List<Shipping> selectByUidAfterId(@Param("uid") Integer uid,
+                                      @Param("lastId") Integer lastId,
+                                      @Param("limit") int limit);
+
     Shipping selectByUidAndShippingId(@Param("uid") Integer uid,
                                       @Param("shippingId") Integer shippingId);
 
@@ -0,0 +1,26 @@
+package com.imooc.mall.enums;
+
+import lombok.Getter;
+
+/**
+ * 秒杀排队号状态:0-排队中，1-下单成功，2-下单失败
+ */
+@Getter
+public enum FlashSaleTicketStatusEnum {
+
+	QUEUING(0, "排队中"),
+
+	SUCCESS(1, "下单成功"),
+
+	FAILED(2, "下单失败"),
+	;
+
+	Integer code;
+
+	String desc;
+
+	FlashSaleTicketStatusEnum(Integer code, String desc) {
+		this.code = code;
+		this.desc = desc;
+	}
+}
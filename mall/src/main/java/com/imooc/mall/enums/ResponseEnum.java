@@ -42,6 +42,14 @@ public enum ResponseEnum {
 
 	ORDER_STATUS_ERROR(20, "订单状态有误"),
 
+	FLASH_SALE_NOT_AVAILABLE(21, "商品不在秒杀中"),
+
+	FLASH_SALE_SOLD_OUT(22, "商品已抢光"),
+
+	FLASH_SALE_REPEAT(23, "每人限购一件"),
+
+	FLASH_SALE_TICKET_NOT_EXIST(24, "排队号不存在或已过期"),
+
 	;
 
 	Integer code;
@@ -0,0 +1,18 @@
+package com.imooc.mall.form;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * 秒杀下单
+ */
+@Data
+public class FlashSaleForm {
+
+	@NotNull
+	private Integer productId;
+
+	@NotNull
+	private Integer shippingId;
+}
@@ -0,0 +1,12 @@
+package com.imooc.mall.id;
+
+/**
+ * 分布式唯一id
+ */
+public interface IdGenerator {
+
+	/**
+	 * 单调递增，多实例之间不重复
+	 */
+	long nextId();
+}
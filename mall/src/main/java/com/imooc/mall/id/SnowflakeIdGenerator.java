@@ -0,0 +1,53 @@
+package com.imooc.mall.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法: 41位时间戳(毫秒) + 5位机器id + 7位序列号 = 53位
+ * 控制在53位以内，前端js的Number不会丢精度
+ * 每台机器每毫秒128个，超出时借用下一毫秒；时钟回拨时沿用上次的时间戳，保证单调递增
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+	/**
+	 * 2020-01-01 00:00:00 UTC
+	 */
+	private final static long EPOCH = 1577836800000L;
+
+	private final static int WORKER_ID_BITS = 5;
+
+	private final static int SEQUENCE_BITS = 7;
+
+	public final static long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+
+	private final long workerId;
+
+	/**
+	 * 上一次发出的 时间戳 << SEQUENCE_BITS | 序列号
+	 */
+	private final AtomicLong lastState = new AtomicLong();
+
+	public SnowflakeIdGenerator(long workerId) {
+		if (workerId < 0 || workerId > MAX_WORKER_ID) {
+			throw new IllegalArgumentException("workerId必须在0到" + MAX_WORKER_ID + "之间, workerId=" + workerId);
+		}
+		this.workerId = workerId;
+	}
+
+	@Override
+	public long nextId() {
+		while (true) {
+			long last = lastState.get();
+			long now = System.currentTimeMillis() - EPOCH;
+			//序列号用完时 +1 会自动进位到时间戳
+			long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+			if (lastState.compareAndSet(last, next)) {
+				long timestamp = next >>> SEQUENCE_BITS;
+				long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+				return (timestamp << (WORKER_ID_BITS + SEQUENCE_BITS))
+						| (workerId << SEQUENCE_BITS)
+						| sequence;
+			}
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package com.imooc.mall.listener;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.imooc.mall.config.FlashSaleConfig;
+import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.pojo.FlashSaleOrderMsg;
+import com.imooc.mall.service.IFlashSaleService;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.RabbitUtils;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 秒杀订单批量落库：一次拉取N条 -> 一个事务插入订单和明细 -> 一次ack
+ * 落不了库的消息有限次重试后进死信队列，不会一直挡在队头
+ * 启动时先把配置的秒杀库存从数据库搬到redis，再开始消费；定时检查秒杀是否结束，结束了剩余库存还回数据库
+ */
+@Component
+@ConditionalOnProperty(prefix = "mall.flash-sale", name = "enabled", havingValue = "true")
+@Slf4j
+public class FlashSaleOrderConsumer implements ApplicationRunner {
+
+	public final static String QUEUE_FLASH_SALE_ORDER = "flashSaleOrder";
+
+	public final static String QUEUE_FLASH_SALE_ORDER_DEAD = "flashSaleOrder.dead";
+
+	private final static String HEADER_RETRY_COUNT = "x-retry-count";
+
+	/**
+	 * 发消息后最多等多久broker确认(spring.rabbitmq.publisher-confirms)
+	 */
+	public final static long CONFIRM_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * 隔多久检查一次秒杀有没有到结束时间
+	 */
+	private final static long UNLOAD_CHECK_INTERVAL_SECONDS = 10;
+
+	@Autowired
+	private IFlashSaleService flashSaleService;
+
+	@Autowired
+	private RabbitTemplate rabbitTemplate;
+
+	@Autowired
+	private FlashSaleConfig flashSaleConfig;
+
+	private Gson gson = new Gson();
+
+	private ExecutorService executorService;
+
+	private ScheduledExecutorService unloadScheduler;
+
+	private volatile boolean running;
+
+	@Override
+	public void run(ApplicationArguments args) {
+		for (Map.Entry<Integer, Integer> entry : flashSaleConfig.getProducts().entrySet()) {
+			try {
+				boolean preloaded = flashSaleService.preload(entry.getKey(), entry.getValue());
+				log.info("【秒杀库存预热】productId={}, stock={}, {}", entry.getKey(), entry.getValue(),
+						preloaded ? "成功" : "已在秒杀中或库存不足");
+			} catch (RuntimeException e) {
+				log.error("【秒杀库存预热失败】productId={}", entry.getKey(), e);
+			}
+		}
+
+		CustomizableThreadFactory unloadThreadFactory = new CustomizableThreadFactory("flash-sale-unload-");
+		unloadThreadFactory.setDaemon(true);
+		unloadScheduler = Executors.newSingleThreadScheduledExecutor(unloadThreadFactory);
+		unloadScheduler.scheduleWithFixedDelay(this::unloadIfEnded,
+				UNLOAD_CHECK_INTERVAL_SECONDS, UNLOAD_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+		running = true;
+		executorService = Executors.newFixedThreadPool(flashSaleConfig.getConcurrency(),
+				new CustomizableThreadFactory("flash-sale-order-"));
+		for (int i = 0; i < flashSaleConfig.getConcurrency(); i++) {
+			executorService.execute(this::consume);
+		}
+		log.info("秒杀订单批量落库已启动 batchSize={}, concurrency={}",
+				flashSaleConfig.getBatchSize(), flashSaleConfig.getConcurrency());
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		if (unloadScheduler != null) {
+			unloadScheduler.shutdownNow();
+		}
+		if (executorService == null) {
+			return;
+		}
+		executorService.shutdown();
+		executorService.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 多个实例同时检查，只有一个能取到剩余库存
+	 */
+	private void unloadIfEnded() {
+		for (Integer productId : flashSaleConfig.getProducts().keySet()) {
+			try {
+				int quantity = flashSaleService.unloadIfEnded(productId);
+				if (quantity >= 0) {
+					log.info("【秒杀结束】productId={}, 剩余{}件已还回数据库", productId, quantity);
+				}
+			} catch (RuntimeException e) {
+				log.error("【秒杀结束失败】productId={}", productId, e);
+			}
+		}
+	}
+
+	private void consume() {
+		while (running) {
+			int count;
+			long sleepMillis = flashSaleConfig.getPollInterval().toMillis();
+			try {
+				count = rabbitTemplate.execute(this::drain);
+			} catch (Exception e) {
+				log.error("秒杀订单批量落库失败", e);
+				count = 0;
+				sleepMillis = flashSaleConfig.getRetryInterval().toMillis();
+			}
+			if (count < flashSaleConfig.getBatchSize()) {
+				//队列没有积压了，或者刚失败过，歇一会儿再拉
+				try {
+					Thread.sleep(sleepMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 同一个channel上拉取、落库、ack
+	 * 整批落库失败时逐条重试，还是失败的重新发回队尾(带上重试次数)，超过次数的转到死信队列
+	 * 逐条重试时每条处理完(或者重新发出去并确认了)单独ack；发送失败的和剩下的全部放回队列
+	 * 已经落库的订单号会被跳过，重复处理没有副作用
+	 * @throws FlashSaleRetryException 有消息落库失败，调用方歇一会儿再拉
+	 */
+	private int drain(Channel channel) throws IOException {
+		List<GetResponse> responseList = new ArrayList<>();
+		List<FlashSaleOrderMsg> msgList = new ArrayList<>();
+		for (int i = 0; i < flashSaleConfig.getBatchSize(); i++) {
+			GetResponse response = channel.basicGet(QUEUE_FLASH_SALE_ORDER, false);
+			if (response == null) {
+				break;
+			}
+			responseList.add(response);
+			msgList.add(parse(response));
+		}
+		if (responseList.isEmpty()) {
+			return 0;
+		}
+		long lastDeliveryTag = responseList.get(responseList.size() - 1).getEnvelope().getDeliveryTag();
+
+		List<FlashSaleOrderMsg> validList = new ArrayList<>();
+		for (FlashSaleOrderMsg msg : msgList) {
+			if (msg != null) {
+				validList.add(msg);
+			}
+		}
+		try {
+			int row = flashSaleService.materialize(validList);
+			channel.basicAck(lastDeliveryTag, true);
+			log.info("【秒杀订单批量落库】消息{}条, 新建订单{}个", responseList.size(), row);
+			return responseList.size();
+		} catch (RuntimeException e) {
+			log.warn("【秒杀订单批量落库失败，逐条重试】消息{}条", responseList.size(), e);
+		}
+
+		int failed = 0;
+		for (int i = 0; i < responseList.size(); i++) {
+			FlashSaleOrderMsg msg = msgList.get(i);
+			long deliveryTag = responseList.get(i).getEnvelope().getDeliveryTag();
+			if (msg != null) {
+				try {
+					flashSaleService.materialize(Collections.singletonList(msg));
+				} catch (RuntimeException e) {
+					failed++;
+					try {
+						retryOrDeadLetter(channel, responseList.get(i), msg, e);
+					} catch (IOException | RuntimeException publishError) {
+						//这条和后面还没处理的都放回队列，前面的已经单独ack过了
+						log.error("【秒杀消息重新发送失败，剩余消息放回队列】orderNo={}", msg.getOrderNo(), publishError);
+						requeue(channel, lastDeliveryTag);
+						throw new FlashSaleRetryException("秒杀消息重新发送失败, 剩余" + (responseList.size() - i) + "条已放回队列");
+					}
+				}
+			}
+			//失败的已经重新发出去并确认了，原消息可以ack
+			channel.basicAck(deliveryTag, false);
+		}
+		if (failed > 0) {
+			throw new FlashSaleRetryException("秒杀订单落库失败" + failed + "条, 已重新入队或转入死信队列");
+		}
+		return responseList.size();
+	}
+
+	/**
+	 * 格式错误、缺字段的消息重试也没用，记录后丢弃
+	 * @return 不能处理的返回null
+	 */
+	private FlashSaleOrderMsg parse(GetResponse response) {
+		String body = new String(response.getBody(), StandardCharsets.UTF_8);
+		FlashSaleOrderMsg msg;
+		try {
+			msg = gson.fromJson(body, FlashSaleOrderMsg.class);
+		} catch (JsonSyntaxException e) {
+			log.error("【秒杀消息格式错误，丢弃】=> {}", body, e);
+			return null;
+		}
+		if (msg == null || msg.getOrderNo() == null || msg.getUserId() == null
+				|| msg.getProductId() == null || msg.getShippingId() == null) {
+			log.error("【秒杀消息缺少字段，丢弃】=> {}", body);
+			return null;
+		}
+		return msg;
+	}
+
+	/**
+	 * nack这个deliveryTag及之前所有没ack的消息；nack不了就直接关掉channel，broker会把没ack的全部重新投递
+	 */
+	private void requeue(Channel channel, long lastDeliveryTag) {
+		try {
+			channel.basicNack(lastDeliveryTag, true, true);
+		} catch (IOException | RuntimeException e) {
+			log.error("【秒杀消息nack失败，关闭channel】", e);
+			//缓存的channel调close只是放回缓存，要真的关掉
+			RabbitUtils.setPhysicalCloseRequired(channel, true);
+			RabbitUtils.closeChannel(channel);
+		}
+	}
+
+	/**
+	 * 重新发出的消息等broker确认后才返回，确认不了抛异常，原消息不能ack
+	 */
+	private void retryOrDeadLetter(Channel channel, GetResponse response, FlashSaleOrderMsg msg, RuntimeException e) throws IOException {
+		AMQP.BasicProperties props = response.getProps();
+		Map<String, Object> headers = props.getHeaders() == null ? new HashMap<>() : new HashMap<>(props.getHeaders());
+		Object retried = headers.get(HEADER_RETRY_COUNT);
+		int retryCount = retried instanceof Number ? ((Number) retried).intValue() : 0;
+		String body = new String(response.getBody(), StandardCharsets.UTF_8);
+
+		if (retryCount >= flashSaleConfig.getMaxRetries()) {
+			//排队号标记为失败、库存还回去，死信队列里的消息只用来排查，不能再搬回原队列重放
+			log.error("【秒杀消息重试{}次仍失败，转入死信队列】=> {}", retryCount, body, e);
+			channel.basicPublish("", QUEUE_FLASH_SALE_ORDER_DEAD, props, response.getBody());
+			waitForConfirms(channel);
+			flashSaleService.fail(msg, ResponseEnum.ERROR.getDesc());
+			return;
+		}
+		headers.put(HEADER_RETRY_COUNT, retryCount + 1);
+		log.warn("【秒杀消息落库失败，第{}次重试】=> {}", retryCount + 1, body, e);
+		channel.basicPublish("", QUEUE_FLASH_SALE_ORDER, props.builder().headers(headers).build(), response.getBody());
+		waitForConfirms(channel);
+	}
+
+	private void waitForConfirms(Channel channel) throws IOException {
+		try {
+			channel.waitForConfirmsOrDie(CONFIRM_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("等待broker确认时被中断", e);
+		} catch (TimeoutException e) {
+			throw new IOException("等待broker确认超时", e);
+		}
+	}
+
+	private static class FlashSaleRetryException extends RuntimeException {
+
+		FlashSaleRetryException(String message) {
+			super(message);
+		}
+	}
+}
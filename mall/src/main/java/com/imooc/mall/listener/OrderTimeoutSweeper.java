@@ -0,0 +1,144 @@
+package com.imooc.mall.listener;
+
+import com.imooc.mall.config.OrderTimeoutConfig;
+import com.imooc.mall.dao.OrderMapper;
+import com.imooc.mall.enums.OrderStatusEnum;
+import com.imooc.mall.service.IOrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.imooc.mall.consts.MallConst.ORDER_TIMEOUT_REDIS_KEY;
+
+/**
+ * 超时未付款订单自动取消
+ * 下单提交后订单号放进redis的zset(score=到期时间)，这里不停地取到期的一批 -> 一个事务取消并还库存 -> 从zset删掉
+ * 多个实例同时取到同一批也没关系，取消是条件更新，只有一个会成功
+ * 每隔一段时间再扫一次数据库兜底，处理redis里丢了的和上线前就有的订单
+ */
+@Component
+@ConditionalOnProperty(prefix = "mall.order-timeout", name = "enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OrderTimeoutSweeper {
+
+	@Autowired
+	private IOrderService orderService;
+
+	@Autowired
+	private OrderMapper orderMapper;
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@Autowired
+	private OrderTimeoutConfig orderTimeoutConfig;
+
+	private ExecutorService executorService;
+
+	private volatile boolean running;
+
+	private long nextDbScanAt;
+
+	@PostConstruct
+	public void start() {
+		running = true;
+		executorService = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("order-timeout-"));
+		executorService.execute(this::sweep);
+		log.info("超时订单自动取消已启动 timeout={}, batchSize={}",
+				orderTimeoutConfig.getTimeout(), orderTimeoutConfig.getBatchSize());
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		executorService.shutdown();
+		executorService.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	private void sweep() {
+		while (running) {
+			int count = 0;
+			try {
+				count = sweepRedis();
+				if (System.currentTimeMillis() >= nextDbScanAt) {
+					int dbCount = sweepDb();
+					//扫满一批说明还有，下一轮接着扫
+					if (dbCount < orderTimeoutConfig.getBatchSize()) {
+						nextDbScanAt = System.currentTimeMillis() + orderTimeoutConfig.getDbScanInterval().toMillis();
+					}
+					count = Math.max(count, dbCount);
+				}
+			} catch (Exception e) {
+				log.error("超时订单自动取消失败", e);
+			}
+			if (count < orderTimeoutConfig.getBatchSize()) {
+				//没有积压了，歇一会儿再取
+				try {
+					Thread.sleep(orderTimeoutConfig.getPollInterval().toMillis());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 事务提交后才从zset删，中途失败下一轮会重试
+	 */
+	private int sweepRedis() {
+		Set<String> memberSet = redisTemplate.opsForZSet().rangeByScore(ORDER_TIMEOUT_REDIS_KEY,
+				0, System.currentTimeMillis(), 0, orderTimeoutConfig.getBatchSize());
+		if (memberSet == null || memberSet.isEmpty()) {
+			return 0;
+		}
+
+		Set<Long> orderNoSet = new HashSet<>();
+		List<String> badMemberList = new ArrayList<>();
+		for (String member : memberSet) {
+			try {
+				orderNoSet.add(Long.valueOf(member));
+			} catch (NumberFormatException e) {
+				badMemberList.add(member);
+			}
+		}
+		if (!badMemberList.isEmpty()) {
+			//不是订单号的直接删掉，不然每一轮都卡在队头
+			log.error("【超时订单自动取消】删除不是订单号的成员 {}", badMemberList);
+			redisTemplate.opsForZSet().remove(ORDER_TIMEOUT_REDIS_KEY, badMemberList.toArray());
+		}
+		if (orderNoSet.isEmpty()) {
+			return memberSet.size();
+		}
+		int row = orderService.batchCancel(orderNoSet);
+		redisTemplate.opsForZSet().remove(ORDER_TIMEOUT_REDIS_KEY, memberSet.toArray());
+		log.info("【超时订单自动取消】到期{}个, 取消{}个", orderNoSet.size(), row);
+		return memberSet.size();
+	}
+
+	private int sweepDb() {
+		Date createdBefore = new Date(System.currentTimeMillis() - orderTimeoutConfig.getTimeout().toMillis());
+		List<Long> orderNoList = orderMapper.selectOrderNoByStatusCreatedBefore(OrderStatusEnum.NO_PAY.getCode(),
+				createdBefore, orderTimeoutConfig.getBatchSize());
+		if (orderNoList.isEmpty()) {
+			return 0;
+		}
+		int row = orderService.batchCancel(new HashSet<>(orderNoList));
+		log.info("【超时订单自动取消】扫库发现{}个, 取消{}个", orderNoList.size(), row);
+		return orderNoList.size();
+	}
+}
@@ -0,0 +1,182 @@
+package com.imooc.mall.listener;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.imooc.mall.config.PayNotifyConfig;
+import com.imooc.mall.pojo.PayInfo;
+import com.imooc.mall.service.IOrderService;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.imooc.mall.listener.PayMsgListener.PLATFORM_STATUS_SUCCESS;
+import static com.imooc.mall.listener.PayMsgListener.QUEUE_PAY_NOTIFY;
+
+/**
+ * 批量消费支付通知：broker预取N条 -> 按orderNo去重 -> 一条update改成已付款 -> 一次ack
+ * 支付平台重放积压通知时，吞吐量比逐条消费高很多
+ */
+@Component
+@ConditionalOnProperty(prefix = "mall.pay-notify", name = "batch-enabled", havingValue = "true")
+@Slf4j
+public class PayMsgBatchConsumer {
+
+	@Autowired
+	private IOrderService orderService;
+
+	@Autowired
+	private RabbitTemplate rabbitTemplate;
+
+	@Autowired
+	private PayNotifyConfig payNotifyConfig;
+
+	private Gson gson = new Gson();
+
+	private ExecutorService executorService;
+
+	private volatile boolean running;
+
+	@PostConstruct
+	public void start() {
+		running = true;
+		executorService = Executors.newFixedThreadPool(payNotifyConfig.getConcurrency(),
+				new CustomizableThreadFactory("pay-notify-"));
+		for (int i = 0; i < payNotifyConfig.getConcurrency(); i++) {
+			executorService.execute(this::consume);
+		}
+		log.info("支付通知批量消费已启动 batchSize={}, concurrency={}",
+				payNotifyConfig.getBatchSize(), payNotifyConfig.getConcurrency());
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		executorService.shutdown();
+		executorService.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 每个线程占一个channel长期订阅，channel断了重新订阅
+	 */
+	private void consume() {
+		while (running) {
+			try {
+				rabbitTemplate.execute(this::subscribe);
+			} catch (Exception e) {
+				log.error("支付通知批量消费失败", e);
+				try {
+					Thread.sleep(payNotifyConfig.getPollInterval().toMillis());
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * basicQos(batchSize)后basicConsume，broker一次最多推batchSize条过来，不用每条一个来回
+	 * 推过来的先放本地队列，攒够一批或者等了pollInterval就处理
+	 * 退出时取消订阅，还没ack的全部重新投递，不会一直挂在缓存的channel上
+	 */
+	private Object subscribe(Channel channel) throws IOException, InterruptedException {
+		BlockingQueue<Delivery> deliveries = new LinkedBlockingQueue<>();
+		channel.basicQos(payNotifyConfig.getBatchSize());
+		String consumerTag = channel.basicConsume(QUEUE_PAY_NOTIFY, false, new DefaultConsumer(channel) {
+			@Override
+			public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+				deliveries.add(new Delivery(envelope, properties, body));
+			}
+		});
+		try {
+			while (running && channel.isOpen()) {
+				Delivery first = deliveries.poll(payNotifyConfig.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				List<Delivery> batch = new ArrayList<>();
+				batch.add(first);
+				deliveries.drainTo(batch, payNotifyConfig.getBatchSize() - 1);
+				handle(channel, batch);
+			}
+		} finally {
+			if (channel.isOpen()) {
+				try {
+					channel.basicCancel(consumerTag);
+					channel.basicRecover(true);
+				} catch (IOException | RuntimeException e) {
+					log.warn("支付通知取消订阅失败", e);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 按orderNo去重后一条update，整批一次ack
+	 * 没ack成功(处理失败或者ack本身失败)就整批nack重回队列，订单状态是条件更新，重复处理没有副作用
+	 */
+	private void handle(Channel channel, List<Delivery> batch) throws IOException {
+		long lastDeliveryTag = batch.get(batch.size() - 1).getEnvelope().getDeliveryTag();
+		boolean acked = false;
+		try {
+			Set<Long> orderNoSet = new HashSet<>();
+			for (Delivery delivery : batch) {
+				PayInfo payInfo = parse(delivery);
+				if (payInfo != null && PLATFORM_STATUS_SUCCESS.equals(payInfo.getPlatformStatus())) {
+					orderNoSet.add(payInfo.getOrderNo());
+				}
+			}
+			int row = orderService.batchPaid(orderNoSet);
+			channel.basicAck(lastDeliveryTag, true);
+			acked = true;
+			log.info("【批量处理支付通知】消息{}条, 订单{}个, 更新{}个", batch.size(), orderNoSet.size(), row);
+		} finally {
+			if (!acked && channel.isOpen()) {
+				channel.basicNack(lastDeliveryTag, true, true);
+			}
+		}
+	}
+
+	/**
+	 * 格式错误、缺订单号的消息重试也没用，记录后丢弃
+	 * @return 不能处理的返回null
+	 */
+	private PayInfo parse(Delivery delivery) {
+		String msg = new String(delivery.getBody(), StandardCharsets.UTF_8);
+		PayInfo payInfo;
+		try {
+			payInfo = gson.fromJson(msg, PayInfo.class);
+		} catch (JsonParseException e) {
+			log.error("【支付通知格式错误，丢弃】=> {}", msg, e);
+			return null;
+		}
+		if (payInfo == null || payInfo.getOrderNo() == null) {
+			log.error("【支付通知缺少订单号，丢弃】=> {}", msg);
+			return null;
+		}
+		return payInfo;
+	}
+}
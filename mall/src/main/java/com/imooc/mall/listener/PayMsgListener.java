@@ -1,33 +1,56 @@
 package com.imooc.mall.listener;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.imooc.mall.pojo.PayInfo;
 import com.imooc.mall.service.IOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+
 /**
  * 关于PayInfo,正确姿势：pay项目提供client.jar，mall项目引入jar包
+ * 逐条消费，开启 mall.pay-notify.batch-enabled 后改用 {@link PayMsgBatchConsumer}
  */
 @Component
-@RabbitListener(queues = "payNotify")
+@RabbitListener(queues = PayMsgListener.QUEUE_PAY_NOTIFY)
+@ConditionalOnProperty(prefix = "mall.pay-notify", name = "batch-enabled", havingValue = "false", matchIfMissing = true)
 @Slf4j
 public class PayMsgListener {
 
+	public final static String QUEUE_PAY_NOTIFY = "payNotify";
+
+	public final static String PLATFORM_STATUS_SUCCESS = "SUCCESS";
+
 	@Autowired
 	private IOrderService orderService;
 
+	private Gson gson = new Gson();
+
 	@RabbitHandler
 	public void process(String msg) {
 		log.info("【接收到消息】=> {}", msg);
 
-		PayInfo payInfo = new Gson().fromJson(msg, PayInfo.class);
-		if(payInfo.getPlatformStatus().equals("SUCCESS")){
-			//修改订单里的状态
-			orderService.paid(payInfo.getOrderNo());
+		PayInfo payInfo;
+		try {
+			payInfo = gson.fromJson(msg, PayInfo.class);
+		} catch (JsonParseException e) {
+			log.error("【支付通知格式错误，丢弃】=> {}", msg, e);
+			return;
+		}
+		//抛异常会重回队列一直重试，格式不对的直接丢弃
+		if (payInfo == null || payInfo.getOrderNo() == null) {
+			log.error("【支付通知缺少订单号，丢弃】=> {}", msg);
+			return;
+		}
+		if(PLATFORM_STATUS_SUCCESS.equals(payInfo.getPlatformStatus())){
+			//修改订单里的状态，重复通知不会报错
+			orderService.batchPaid(Collections.singleton(payInfo.getOrderNo()));
 		}
 	}
 }
@@ -0,0 +1,79 @@
+package com.imooc.mall.page;
+
+import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.vo.CursorPageVo;
+import com.imooc.mall.vo.ResponseVo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 游标分页的游标，里面是上一页最后一条记录的id
+ * 对客户端是不透明的字符串，以后换排序字段时只改这里
+ */
+public final class KeysetCursor {
+
+	private static final String PREFIX = "id:";
+
+	/**
+	 * 一页最多返回的条数，超过的按这个数返回
+	 */
+	public static final int MAX_PAGE_SIZE = 100;
+
+	private KeysetCursor() {
+	}
+
+	public static String encode(Integer lastId) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @return 空字符串表示第一页，返回null
+	 * @throws IllegalArgumentException 游标格式不对
+	 */
+	public static Integer decode(String cursor) {
+		if (cursor == null || cursor.isEmpty()) {
+			return null;
+		}
+		String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		if (!value.startsWith(PREFIX)) {
+			throw new IllegalArgumentException("cursor格式不正确: " + cursor);
+		}
+		return Integer.valueOf(value.substring(PREFIX.length()));
+	}
+
+	/**
+	 * 游标分页的公共流程: 解析游标、校验并截断pageSize、多查一条判断有没有下一页、生成下一页的游标
+	 * @param fetch (上一页最后一条的id, 最多查几条) -> 查询结果，已经多加了一条
+	 * @param idGetter 取记录的id，用来生成下一页的游标
+	 * @param converter 本页的记录转成返回给客户端的对象
+	 */
+	public static <E, T> ResponseVo<CursorPageVo<T>> page(String cursor, Integer pageSize,
+														  BiFunction<Integer, Integer, List<E>> fetch,
+														  Function<E, Integer> idGetter,
+														  Function<List<E>, List<T>> converter) {
+		Integer lastId;
+		try {
+			lastId = decode(cursor);
+		} catch (IllegalArgumentException e) {
+			return ResponseVo.error(ResponseEnum.PARAM_ERROR, "cursor格式不正确");
+		}
+		if (pageSize <= 0) {
+			return ResponseVo.error(ResponseEnum.PARAM_ERROR, "pageSize必须大于0");
+		}
+		int limit = Math.min(pageSize, MAX_PAGE_SIZE);
+
+		//多查一条，用来判断有没有下一页
+		List<E> list = fetch.apply(lastId, limit + 1);
+		boolean hasNextPage = list.size() > limit;
+		if (hasNextPage) {
+			list = list.subList(0, limit);
+		}
+		Integer nextLastId = list.isEmpty() ? null : idGetter.apply(list.get(list.size() - 1));
+		return ResponseVo.success(CursorPageVo.of(converter.apply(list), hasNextPage, nextLastId));
+	}
+}
@@ -0,0 +1,23 @@
+package com.imooc.mall.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 秒杀抢到资格后发到mq的消息，由消费者批量落库成订单
+ * 每人每个商品一件
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleOrderMsg {
+
+	private Long orderNo;
+
+	private Integer userId;
+
+	private Integer productId;
+
+	private Integer shippingId;
+}
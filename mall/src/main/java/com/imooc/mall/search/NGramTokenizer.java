@@ -0,0 +1,75 @@
+package com.imooc.mall.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 分词: 中文按字切 n-gram，英文和数字按连续的一段作为一个词，其他字符当分隔符
+ * 建索引时中文单字和相邻两字都要；查询时两个字以上只用两字词，单个字才用单字
+ * 例: "iPhone 7 玫瑰金" -> 索引 [iphone, 7, 玫, 瑰, 金, 玫瑰, 瑰金]，查询 [iphone, 7, 玫瑰, 瑰金]
+ */
+public final class NGramTokenizer {
+
+	private NGramTokenizer() {
+	}
+
+	public static List<String> tokenizeForIndex(String text) {
+		return tokenize(text, true);
+	}
+
+	public static List<String> tokenizeForQuery(String text) {
+		return tokenize(text, false);
+	}
+
+	private static List<String> tokenize(String text, boolean forIndex) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+
+		String lower = text.toLowerCase(Locale.ROOT);
+		StringBuilder word = new StringBuilder();
+		StringBuilder han = new StringBuilder();
+		for (int i = 0; i < lower.length(); ) {
+			int codePoint = lower.codePointAt(i);
+			i += Character.charCount(codePoint);
+			if (Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN) {
+				flushWord(word, tokens);
+				han.appendCodePoint(codePoint);
+			} else if (Character.isLetterOrDigit(codePoint)) {
+				flushHan(han, tokens, forIndex);
+				word.appendCodePoint(codePoint);
+			} else {
+				flushWord(word, tokens);
+				flushHan(han, tokens, forIndex);
+			}
+		}
+		flushWord(word, tokens);
+		flushHan(han, tokens, forIndex);
+		return tokens;
+	}
+
+	private static void flushWord(StringBuilder word, List<String> tokens) {
+		if (word.length() > 0) {
+			tokens.add(word.toString());
+			word.setLength(0);
+		}
+	}
+
+	private static void flushHan(StringBuilder han, List<String> tokens, boolean forIndex) {
+		int[] codePoints = han.codePoints().toArray();
+		han.setLength(0);
+		if (codePoints.length == 0) {
+			return;
+		}
+		if (forIndex || codePoints.length == 1) {
+			for (int codePoint : codePoints) {
+				tokens.add(new String(Character.toChars(codePoint)));
+			}
+		}
+		for (int i = 0; i + 1 < codePoints.length; i++) {
+			tokens.add(new String(codePoints, i, 2));
+		}
+	}
+}
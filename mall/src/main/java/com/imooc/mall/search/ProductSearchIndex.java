@@ -0,0 +1,91 @@
+package com.imooc.mall.search;
+
+import com.imooc.mall.vo.ProductVo;
+
+import java.util.*;
+
+/**
+ * 商品名称、副标题的倒排索引: 词 -> (商品id -> 权重)
+ * 打分: 每个查询词的 idf * 该词在商品里的权重(名称里出现一次算2，副标题算1) 求和
+ * 非线程安全，由调用方加锁
+ */
+public class ProductSearchIndex {
+
+	private static final float NAME_WEIGHT = 2f;
+
+	private static final float SUBTITLE_WEIGHT = 1f;
+
+	private final Map<String, Map<Integer, Float>> postings = new HashMap<>();
+
+	private final Map<Integer, ProductVo> productMap = new HashMap<>();
+
+	private final Map<Integer, Set<String>> productTokens = new HashMap<>();
+
+	/**
+	 * 新增或覆盖
+	 */
+	public void put(ProductVo productVo) {
+		remove(productVo.getId());
+
+		Map<String, Float> weightMap = new HashMap<>();
+		for (String token : NGramTokenizer.tokenizeForIndex(productVo.getName())) {
+			weightMap.merge(token, NAME_WEIGHT, Float::sum);
+		}
+		for (String token : NGramTokenizer.tokenizeForIndex(productVo.getSubtitle())) {
+			weightMap.merge(token, SUBTITLE_WEIGHT, Float::sum);
+		}
+
+		for (Map.Entry<String, Float> entry : weightMap.entrySet()) {
+			postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(productVo.getId(), entry.getValue());
+		}
+		productMap.put(productVo.getId(), productVo);
+		productTokens.put(productVo.getId(), weightMap.keySet());
+	}
+
+	public void remove(Integer productId) {
+		Set<String> tokens = productTokens.remove(productId);
+		if (tokens == null) {
+			return;
+		}
+		for (String token : tokens) {
+			Map<Integer, Float> posting = postings.get(token);
+			posting.remove(productId);
+			if (posting.isEmpty()) {
+				postings.remove(token);
+			}
+		}
+		productMap.remove(productId);
+	}
+
+	public int size() {
+		return productMap.size();
+	}
+
+	/**
+	 * @return 按得分从高到低，同分按id升序
+	 */
+	public List<ProductVo> search(String keyword) {
+		Set<String> queryTokens = new LinkedHashSet<>(NGramTokenizer.tokenizeForQuery(keyword));
+		Map<Integer, Float> scoreMap = new HashMap<>();
+		for (String token : queryTokens) {
+			Map<Integer, Float> posting = postings.get(token);
+			if (posting == null) {
+				continue;
+			}
+			//越少商品包含的词越重要
+			float idf = (float) Math.log(1 + (double) productMap.size() / posting.size());
+			for (Map.Entry<Integer, Float> entry : posting.entrySet()) {
+				scoreMap.merge(entry.getKey(), idf * entry.getValue(), Float::sum);
+			}
+		}
+
+		List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(scoreMap.entrySet());
+		ranked.sort(Map.Entry.<Integer, Float>comparingByValue().reversed()
+				.thenComparing(Map.Entry.comparingByKey()));
+		List<ProductVo> result = new ArrayList<>(ranked.size());
+		for (Map.Entry<Integer, Float> entry : ranked) {
+			result.add(productMap.get(entry.getKey()));
+		}
+		return result;
+	}
+}
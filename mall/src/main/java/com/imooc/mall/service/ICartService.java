@@ -7,6 +7,7 @@ import com.imooc.mall.vo.CartVo;
 import com.imooc.mall.vo.ResponseVo;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Created by 廖师兄
@@ -21,6 +22,12 @@ public interface ICartService {
 
 	ResponseVo<CartVo> delete(Integer uid, Integer productId);
 
+	/**
+	 * 一次删除多个商品，不返回购物车
+	 * @return 实际删除的条数
+	 */
+	long batchDelete(Integer uid, Set<Integer> productIdSet);
+
 	ResponseVo<CartVo> selectAll(Integer uid);
 
 	ResponseVo<CartVo> unSelectAll(Integer uid);
@@ -1,5 +1,6 @@
 package com.imooc.mall.service;
 
+import com.imooc.mall.cache.SerializedResponse;
 import com.imooc.mall.vo.CategoryVo;
 import com.imooc.mall.vo.ResponseVo;
 
@@ -14,4 +15,9 @@ public interface ICategoryService {
 	ResponseVo<List<CategoryVo>> selectAll();
 
 	void findSubCategoryId(Integer id, Set<Integer> resultSet);
+
+	/**
+	 * selectAll()序列化后的结果，类目版本变了才重新序列化
+	 */
+	SerializedResponse selectAllSerialized();
 }
@@ -0,0 +1,52 @@
+package com.imooc.mall.service;
+
+import com.imooc.mall.pojo.FlashSaleOrderMsg;
+import com.imooc.mall.vo.FlashSaleTicketVo;
+import com.imooc.mall.vo.ResponseVo;
+
+import java.util.List;
+
+/**
+ * 秒杀下单: 抢资格只读写redis、发mq就返回排队号，订单由消费者批量落库，客户端轮询排队号
+ */
+public interface IFlashSaleService {
+
+	/**
+	 * 从数据库库存里扣出stock件放到redis, 已经预热过的商品不会重复扣
+	 * 在自己的事务里执行并提交
+	 * @return 预热成功返回true, 已经在秒杀中或者数据库库存不足返回false
+	 */
+	boolean preload(Integer productId, int stock);
+
+	/**
+	 * 到了结束时间就结束秒杀, redis里剩下的库存还回数据库
+	 * 在自己的事务里执行并提交
+	 * @return 还回数据库的件数, 不在秒杀中或者还没到结束时间返回-1
+	 */
+	int unloadIfEnded(Integer productId);
+
+	/**
+	 * 不管结束时间, 马上结束秒杀, 其他同unloadIfEnded
+	 */
+	int unload(Integer productId);
+
+	/**
+	 * 抢一件, 成功返回排队中的排队号
+	 */
+	ResponseVo<FlashSaleTicketVo> create(Integer uid, Integer productId, Integer shippingId);
+
+	ResponseVo<FlashSaleTicketVo> ticket(Integer uid, Long orderNo);
+
+	/**
+	 * 一批消息落库成订单，一个事务
+	 * 已经落库的(重复投递)跳过，商品、收货地址不对的把排队号标记为失败并还回redis库存
+	 * 排队号在事务提交后更新
+	 * @return 新建的订单数
+	 */
+	int materialize(List<FlashSaleOrderMsg> msgList);
+
+	/**
+	 * 重试多次也落不了库(转入死信队列)的消息, 排队号标记为失败并还回库存
+	 */
+	void fail(FlashSaleOrderMsg msg, String reason);
+}
@@ -1,9 +1,12 @@
 package com.imooc.mall.service;
 
 import com.github.pagehelper.PageInfo;
+import com.imooc.mall.vo.CursorPageVo;
 import com.imooc.mall.vo.OrderVo;
 import com.imooc.mall.vo.ResponseVo;
 
+import java.util.Set;
+
 /**
  * Created by 廖师兄
  */
@@ -13,10 +16,28 @@ public interface IOrderService {
 
 	ResponseVo<PageInfo> list(Integer uid, Integer pageNum, Integer pageSize);
 
+	/**
+	 * 游标分页，新订单在前
+	 * @param cursor 第一页传空字符串
+	 */
+	ResponseVo<CursorPageVo<OrderVo>> listByCursor(Integer uid, String cursor, Integer pageSize);
+
 	ResponseVo<OrderVo> detail(Integer uid, Long orderNo);
 
 	ResponseVo cancel(Integer uid, Long orderNo);
 
 	void paid(Long orderNo);
 
+	/**
+	 * 批量改为[已付款]，不是[未付款]的订单直接跳过(重复通知)
+	 * @return 实际修改的订单数
+	 */
+	int batchPaid(Set<Long> orderNoSet);
+
+	/**
+	 * 批量取消[未付款]订单并还库存，一个事务、一条sql还库存
+	 * 已经不是[未付款]的订单直接跳过(已付款、已取消)
+	 * @return 实际取消的订单数
+	 */
+	int batchCancel(Set<Long> orderNoSet);
 }
@@ -0,0 +1,17 @@
+package com.imooc.mall.service;
+
+import com.github.pagehelper.PageInfo;
+import com.imooc.mall.vo.ResponseVo;
+
+/**
+ * 商品搜索(按名称、副标题)
+ */
+public interface IProductSearchService {
+
+	ResponseVo<PageInfo> search(String keyword, Integer pageNum, Integer pageSize);
+
+	/**
+	 * 商品有变更时重新加载这个商品，下架、删除的从索引里去掉
+	 */
+	void refresh(Integer productId);
+}
@@ -1,7 +1,9 @@
 package com.imooc.mall.service;
 
 import com.github.pagehelper.PageInfo;
+import com.imooc.mall.vo.CursorPageVo;
 import com.imooc.mall.vo.ProductDetailVo;
+import com.imooc.mall.vo.ProductVo;
 import com.imooc.mall.vo.ResponseVo;
 
 /**
@@ -11,5 +13,11 @@ public interface IProductService {
 
 	ResponseVo<PageInfo> list(Integer categoryId, Integer pageNum, Integer pageSize);
 
+	/**
+	 * 游标分页，不查总数，翻得再深也是按id走索引
+	 * @param cursor 第一页传空字符串
+	 */
+	ResponseVo<CursorPageVo<ProductVo>> listByCursor(Integer categoryId, String cursor, Integer pageSize);
+
 	ResponseVo<ProductDetailVo> detail(Integer productId);
 }
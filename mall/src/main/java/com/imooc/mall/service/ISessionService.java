@@ -0,0 +1,24 @@
+package com.imooc.mall.service;
+
+import com.imooc.mall.pojo.User;
+
+/**
+ * 登录态，token -> 用户, 存在redis里，多个节点共享
+ */
+public interface ISessionService {
+
+	/**
+	 * 登录成功后创建，返回token
+	 */
+	String create(User user);
+
+	/**
+	 * 不存在或已过期返回null
+	 */
+	User get(String token);
+
+	/**
+	 * 登出，所有节点都会失效
+	 */
+	void remove(String token);
+}
@@ -2,6 +2,8 @@ package com.imooc.mall.service;
 
 import com.github.pagehelper.PageInfo;
 import com.imooc.mall.form.ShippingForm;
+import com.imooc.mall.pojo.Shipping;
+import com.imooc.mall.vo.CursorPageVo;
 import com.imooc.mall.vo.ResponseVo;
 
 import java.util.Map;
@@ -18,4 +20,10 @@ public interface IShippingService {
 	ResponseVo update(Integer uid, Integer shippingId, ShippingForm form);
 
 	ResponseVo<PageInfo> list(Integer uid, Integer pageNum, Integer pageSize);
+
+	/**
+	 * 游标分页
+	 * @param cursor 第一页传空字符串
+	 */
+	ResponseVo<CursorPageVo<Shipping>> listByCursor(Integer uid, String cursor, Integer pageSize);
 }
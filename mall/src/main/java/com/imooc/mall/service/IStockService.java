@@ -0,0 +1,21 @@
+package com.imooc.mall.service;
+
+import java.util.Map;
+
+/**
+ * 库存
+ */
+public interface IStockService {
+
+	/**
+	 * 扣库存(productId -> 数量), 一条sql完成
+	 * 必须在事务里调用，返回false时调用方需要回滚事务
+	 * @return 全部扣减成功返回true, 有商品库存不足返回false
+	 */
+	boolean decrease(Map<Integer, Integer> quantityMap);
+
+	/**
+	 * 还库存(productId -> 数量), 一条sql完成, 必须在事务里调用
+	 */
+	void increase(Map<Integer, Integer> quantityMap);
+}
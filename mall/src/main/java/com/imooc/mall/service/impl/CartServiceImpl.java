@@ -1,6 +1,9 @@
 package com.imooc.mall.service.impl;
 
-import com.google.gson.Gson;
+import com.imooc.mall.cache.ProductIdFilter;
+import com.imooc.mall.cache.ProductSnapshotCache;
+import com.imooc.mall.cache.SingleFlight;
+import com.imooc.mall.codec.CartCodec;
 import com.imooc.mall.dao.ProductMapper;
 import com.imooc.mall.enums.ProductStatusEnum;
 import com.imooc.mall.enums.ResponseEnum;
@@ -20,8 +23,11 @@ import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Created by 廖师兄
@@ -34,24 +40,44 @@ public class CartServiceImpl implements ICartService {
 	@Autowired
 	private ProductMapper productMapper;
 
+	@Autowired
+	private ProductSnapshotCache productSnapshotCache;
+
+	@Autowired
+	private ProductIdFilter productIdFilter;
+
 	@Autowired
 	private StringRedisTemplate redisTemplate;
 
-	private Gson gson = new Gson();
+	@Autowired
+	private CartCodec cartCodec;
+
+	/**
+	 * 抢购时大量用户同时加同一个商品，同一时刻只查一次数据库
+	 */
+	private final SingleFlight<Integer, Product> productLoader = new SingleFlight<>();
 
 	@Override
 	public ResponseVo<CartVo> add(Integer uid, CartAddForm form) {
 		Integer quantity = 1;
 
-		Product product = productMapper.selectByPrimaryKey(form.getProductId());
+		//肯定不存在或者刚查过不能买的，不查数据库
+		ResponseEnum rejected = productIdFilter.reject(form.getProductId());
+		if (rejected != null) {
+			return ResponseVo.error(rejected);
+		}
+
+		Product product = productLoader.load(form.getProductId(), productMapper::selectByPrimaryKey);
 
 		//商品是否存在
 		if (product == null) {
+			productIdFilter.markRejected(form.getProductId(), ResponseEnum.PRODUCT_NOT_EXIST);
 			return ResponseVo.error(ResponseEnum.PRODUCT_NOT_EXIST);
 		}
 
 		//商品是否正常在售
 		if (!product.getStatus().equals(ProductStatusEnum.ON_SALE.getCode())) {
+			productIdFilter.markRejected(product.getId(), ResponseEnum.PRODUCT_OFF_SALE_OR_DELETE);
 			return ResponseVo.error(ResponseEnum.PRODUCT_OFF_SALE_OR_DELETE);
 		}
 
@@ -72,67 +98,20 @@ public class CartServiceImpl implements ICartService {
 			cart = new Cart(product.getId(), quantity, form.getSelected());
 		}else {
 			//已经有了，数量+1
-			cart = gson.fromJson(value, Cart.class);
+			cart = cartCodec.decode(product.getId(), value);
 			cart.setQuantity(cart.getQuantity() + quantity);
 		}
 
 		opsForHash.put(redisKey,
 				String.valueOf(product.getId()),
-				gson.toJson(cart));
+				cartCodec.encode(cart));
 
 		return list(uid);
 	}
 
 	@Override
 	public ResponseVo<CartVo> list(Integer uid) {
-		HashOperations<String, String, String> opsForHash = redisTemplate.opsForHash();
-		String redisKey  = String.format(CART_REDIS_KEY_TEMPLATE, uid);
-		Map<String, String> entries = opsForHash.entries(redisKey);
-
-		boolean selectAll = true;
-		Integer cartTotalQuantity = 0;
-		BigDecimal cartTotalPrice = BigDecimal.ZERO;
-		CartVo cartVo = new CartVo();
-		List<CartProductVo> cartProductVoList = new ArrayList<>();
-		for (Map.Entry<String, String> entry : entries.entrySet()) {
-			Integer productId = Integer.valueOf(entry.getKey());
-			Cart cart = gson.fromJson(entry.getValue(), Cart.class);
-
-			//TODO 需要优化，使用mysql里的in
-			Product product = productMapper.selectByPrimaryKey(productId);
-			if (product != null) {
-				CartProductVo cartProductVo = new CartProductVo(productId,
-						cart.getQuantity(),
-						product.getName(),
-						product.getSubtitle(),
-						product.getMainImage(),
-						product.getPrice(),
-						product.getStatus(),
-						product.getPrice().multiply(BigDecimal.valueOf(cart.getQuantity())),
-						product.getStock(),
-						cart.getProductSelected()
-				);
-				cartProductVoList.add(cartProductVo);
-
-				if (!cart.getProductSelected()) {
-					selectAll = false;
-				}
-
-				//计算总价(只计算选中的)
-				if (cart.getProductSelected()) {
-					cartTotalPrice = cartTotalPrice.add(cartProductVo.getProductTotalPrice());
-				}
-			}
-
-			cartTotalQuantity += cart.getQuantity();
-		}
-
-		//有一个没有选中，就不叫全选
-		cartVo.setSelectedAll(selectAll);
-		cartVo.setCartTotalQuantity(cartTotalQuantity);
-		cartVo.setCartTotalPrice(cartTotalPrice);
-		cartVo.setCartProductVoList(cartProductVoList);
-		return ResponseVo.success(cartVo);
+		return ResponseVo.success(buildCartVo(listForCart(uid)));
 	}
 
 	@Override
@@ -147,7 +126,7 @@ public class CartServiceImpl implements ICartService {
 		}
 
 		//已经有了，修改内容
-		Cart cart = gson.fromJson(value, Cart.class);
+		Cart cart = cartCodec.decode(productId, value);
 		if (form.getQuantity() != null
 				&& form.getQuantity() >= 0) {
 			cart.setQuantity(form.getQuantity());
@@ -156,7 +135,7 @@ public class CartServiceImpl implements ICartService {
 			cart.setProductSelected(form.getSelected());
 		}
 
-		opsForHash.put(redisKey, String.valueOf(productId), gson.toJson(cart));
+		opsForHash.put(redisKey, String.valueOf(productId), cartCodec.encode(cart));
 		return list(uid);
 	}
 
@@ -176,33 +155,28 @@ public class CartServiceImpl implements ICartService {
 	}
 
 	@Override
-	public ResponseVo<CartVo> selectAll(Integer uid) {
+	public long batchDelete(Integer uid, Set<Integer> productIdSet) {
+		if (productIdSet.isEmpty()) {
+			return 0;
+		}
 		HashOperations<String, String, String> opsForHash = redisTemplate.opsForHash();
 		String redisKey  = String.format(CART_REDIS_KEY_TEMPLATE, uid);
 
-		for (Cart cart : listForCart(uid)) {
-			cart.setProductSelected(true);
-			opsForHash.put(redisKey,
-					String.valueOf(cart.getProductId()),
-					gson.toJson(cart));
-		}
+		Object[] fields = productIdSet.stream()
+				.map(String::valueOf)
+				.toArray();
+		Long count = opsForHash.delete(redisKey, fields);
+		return count == null ? 0 : count;
+	}
 
-		return list(uid);
+	@Override
+	public ResponseVo<CartVo> selectAll(Integer uid) {
+		return updateSelected(uid, true);
 	}
 
 	@Override
 	public ResponseVo<CartVo> unSelectAll(Integer uid) {
-		HashOperations<String, String, String> opsForHash = redisTemplate.opsForHash();
-		String redisKey  = String.format(CART_REDIS_KEY_TEMPLATE, uid);
-
-		for (Cart cart : listForCart(uid)) {
-			cart.setProductSelected(false);
-			opsForHash.put(redisKey,
-					String.valueOf(cart.getProductId()),
-					gson.toJson(cart));
-		}
-
-		return list(uid);
+		return updateSelected(uid, false);
 	}
 
 	@Override
@@ -220,10 +194,82 @@ public class CartServiceImpl implements ICartService {
 
 		List<Cart> cartList = new ArrayList<>();
 		for (Map.Entry<String, String> entry : entries.entrySet()) {
-			cartList.add(gson.fromJson(entry.getValue(), Cart.class));
+			cartList.add(cartCodec.decode(Integer.valueOf(entry.getKey()), entry.getValue()));
 		}
 
 		return cartList;
 	}
 
+	/**
+	 * 全选/全不选: 只改状态变了的，一次HMSET写回，直接用内存里的购物车组装返回
+	 */
+	private ResponseVo<CartVo> updateSelected(Integer uid, boolean selected) {
+		HashOperations<String, String, String> opsForHash = redisTemplate.opsForHash();
+		String redisKey  = String.format(CART_REDIS_KEY_TEMPLATE, uid);
+
+		List<Cart> cartList = listForCart(uid);
+		Map<String, String> changedMap = new HashMap<>();
+		for (Cart cart : cartList) {
+			if (!Boolean.valueOf(selected).equals(cart.getProductSelected())) {
+				cart.setProductSelected(selected);
+				changedMap.put(String.valueOf(cart.getProductId()), cartCodec.encode(cart));
+			}
+		}
+		if (!changedMap.isEmpty()) {
+			opsForHash.putAll(redisKey, changedMap);
+		}
+
+		return ResponseVo.success(buildCartVo(cartList));
+	}
+
+	private CartVo buildCartVo(List<Cart> cartList) {
+		boolean selectAll = true;
+		Integer cartTotalQuantity = 0;
+		BigDecimal cartTotalPrice = BigDecimal.ZERO;
+		CartVo cartVo = new CartVo();
+		List<CartProductVo> cartProductVoList = new ArrayList<>();
+
+		//一次 in 查询拿到所有商品
+		Set<Integer> productIdSet = cartList.stream()
+				.map(Cart::getProductId)
+				.collect(Collectors.toSet());
+		Map<Integer, Product> productMap = productSnapshotCache.getAll(productIdSet);
+
+		for (Cart cart : cartList) {
+			Integer productId = cart.getProductId();
+			Product product = productMap.get(productId);
+			if (product != null) {
+				CartProductVo cartProductVo = new CartProductVo(productId,
+						cart.getQuantity(),
+						product.getName(),
+						product.getSubtitle(),
+						product.getMainImage(),
+						product.getPrice(),
+						product.getStatus(),
+						product.getPrice().multiply(BigDecimal.valueOf(cart.getQuantity())),
+						product.getStock(),
+						cart.getProductSelected()
+				);
+				cartProductVoList.add(cartProductVo);
+
+				if (!cart.getProductSelected()) {
+					selectAll = false;
+				}
+
+				//计算总价(只计算选中的)
+				if (cart.getProductSelected()) {
+					cartTotalPrice = cartTotalPrice.add(cartProductVo.getProductTotalPrice());
+				}
+			}
+
+			cartTotalQuantity += cart.getQuantity();
+		}
+
+		//有一个没有选中，就不叫全选
+		cartVo.setSelectedAll(selectAll);
+		cartVo.setCartTotalQuantity(cartTotalQuantity);
+		cartVo.setCartTotalPrice(cartTotalPrice);
+		cartVo.setCartProductVoList(cartProductVoList);
+		return cartVo;
+	}
 }
@@ -1,100 +1,116 @@
 package com.imooc.mall.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imooc.mall.cache.CategoryIndex;
+import com.imooc.mall.cache.SerializedResponse;
 import com.imooc.mall.dao.CategoryMapper;
 import com.imooc.mall.pojo.Category;
 import com.imooc.mall.service.ICategoryService;
 import com.imooc.mall.vo.CategoryVo;
 import com.imooc.mall.vo.ResponseVo;
-import org.springframework.beans.BeanUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
-
-import static com.imooc.mall.consts.MallConst.ROOT_PARENT_ID;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Created by 廖师兄
  */
 @Service
+@Slf4j
 public class CategoryServiceImpl implements ICategoryService {
 
+	/**
+	 * 隔多久去数据库比对一次版本戳
+	 */
+	private final static long INDEX_CHECK_INTERVAL_MILLIS = 30 * 1000;
+
 	@Autowired
 	private CategoryMapper categoryMapper;
 
+	private volatile CategoryIndex categoryIndex;
+
+	private volatile long indexCheckedAt;
+
+	private final ReentrantLock indexLock = new ReentrantLock();
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private volatile SerializedResponse serializedResponse;
+
 	/**
 	 * 耗时：http(请求微信api) > 磁盘 > 内存
 	 * mysql(内网+磁盘)
+	 * 类目树在索引构建时就排好序了，这里直接返回
 	 * @return
 	 */
 	@Override
 	public ResponseVo<List<CategoryVo>> selectAll() {
-		List<Category> categories = categoryMapper.selectAll();
-
-		//查出parent_id=0
-//		for (Category category : categories) {
-//			if (category.getParentId().equals(ROOT_PARENT_ID)) {
-//				CategoryVo categoryVo = new CategoryVo();
-//				BeanUtils.copyProperties(category, categoryVo);
-//				categoryVoList.add(categoryVo);
-//			}
-//		}
-
-		//lambda + stream
-		List<CategoryVo> categoryVoList = categories.stream()
-				.filter(e -> e.getParentId().equals(ROOT_PARENT_ID))
-				.map(this::category2CategoryVo)
-				.sorted(Comparator.comparing(CategoryVo::getSortOrder).reversed())
-				.collect(Collectors.toList());
-
-		//查询子目录
-		findSubCategory(categoryVoList, categories);
-
-		return ResponseVo.success(categoryVoList);
+		return ResponseVo.success(getCategoryIndex().getTree());
 	}
 
 	@Override
 	public void findSubCategoryId(Integer id, Set<Integer> resultSet) {
-		List<Category> categories = categoryMapper.selectAll();
-		findSubCategoryId(id, resultSet, categories);
+		resultSet.addAll(getCategoryIndex().getDescendantIds(id));
 	}
 
-	private void findSubCategoryId(Integer id, Set<Integer> resultSet, List<Category> categories) {
-		for (Category category : categories) {
-			if (category.getParentId().equals(id)) {
-				resultSet.add(category.getId());
-				findSubCategoryId(category.getId(), resultSet, categories);
-			}
+	@Override
+	public SerializedResponse selectAllSerialized() {
+		CategoryIndex index = getCategoryIndex();
+		SerializedResponse response = serializedResponse;
+		if (response != null && response.getVersion().equals(index.getVersion())) {
+			return response;
 		}
-	}
-
 
-	private void findSubCategory(List<CategoryVo> categoryVoList, List<Category> categories) {
-		for (CategoryVo categoryVo : categoryVoList) {
-			List<CategoryVo> subCategoryVoList = new ArrayList<>();
-
-			for (Category category : categories) {
-				//如果查到内容，设置subCategory, 继续往下查
-				if (categoryVo.getId().equals(category.getParentId())) {
-					CategoryVo subCategoryVo = category2CategoryVo(category);
-					subCategoryVoList.add(subCategoryVo);
-				}
+		//并发时可能重复序列化几次，结果一样，不加锁
+		try {
+			response = SerializedResponse.of(index.getVersion(),
+					objectMapper.writeValueAsBytes(ResponseVo.success(index.getTree())));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("类目序列化失败", e);
+		}
+		serializedResponse = response;
+		return response;
+	}
 
-				subCategoryVoList.sort(Comparator.comparing(CategoryVo::getSortOrder).reversed());
-				categoryVo.setSubCategories(subCategoryVoList);
+	/**
+	 * 到了检查时间只让一个线程去比对版本，其他线程继续用旧索引
+	 */
+	private CategoryIndex getCategoryIndex() {
+		CategoryIndex index = categoryIndex;
+		if (index != null && System.currentTimeMillis() - indexCheckedAt < INDEX_CHECK_INTERVAL_MILLIS) {
+			return index;
+		}
 
-				findSubCategory(subCategoryVoList, categories);
+		if (index == null) {
+			indexLock.lock();
+		} else if (!indexLock.tryLock()) {
+			return index;
+		}
+		try {
+			if (categoryIndex == null
+					|| System.currentTimeMillis() - indexCheckedAt >= INDEX_CHECK_INTERVAL_MILLIS) {
+				refreshCategoryIndex();
 			}
+			return categoryIndex;
+		} finally {
+			indexLock.unlock();
 		}
 	}
 
-	private CategoryVo category2CategoryVo(Category category) {
-		CategoryVo categoryVo = new CategoryVo();
-		BeanUtils.copyProperties(category, categoryVo);
-		return categoryVo;
+	private void refreshCategoryIndex() {
+		String version = categoryMapper.selectVersion();
+		if (categoryIndex == null || !Objects.equals(categoryIndex.getVersion(), version)) {
+			List<Category> categories = categoryMapper.selectAll();
+			categoryIndex = CategoryIndex.build(categories, version);
+			log.info("类目索引已重建 version={}, size={}", version, categories.size());
+		}
+		indexCheckedAt = System.currentTimeMillis();
 	}
 }
@@ -0,0 +1,388 @@
+package com.imooc.mall.service.impl;
+
+import com.google.gson.Gson;
+import com.imooc.mall.cache.CountCache;
+import com.imooc.mall.config.FlashSaleConfig;
+import com.imooc.mall.config.OrderTimeoutConfig;
+import com.imooc.mall.dao.OrderItemMapper;
+import com.imooc.mall.dao.OrderMapper;
+import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.dao.ShippingMapper;
+import com.imooc.mall.enums.FlashSaleTicketStatusEnum;
+import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.id.IdGenerator;
+import com.imooc.mall.pojo.*;
+import com.imooc.mall.service.IFlashSaleService;
+import com.imooc.mall.service.IStockService;
+import com.imooc.mall.vo.FlashSaleTicketVo;
+import com.imooc.mall.vo.ResponseVo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.imooc.mall.consts.MallConst.*;
+import static com.imooc.mall.listener.FlashSaleOrderConsumer.CONFIRM_TIMEOUT_MILLIS;
+import static com.imooc.mall.listener.FlashSaleOrderConsumer.QUEUE_FLASH_SALE_ORDER;
+
+/**
+ * 秒杀库存在预热时就从数据库扣掉了, 落库时不再更新商品表, 热点商品的行锁不会被打爆
+ * 落库后的订单和普通订单一样: 超时未付款取消时库存还回数据库, 不再回到秒杀
+ * 秒杀结束时redis里剩下的库存还回数据库, 结束后才失败的排队号也直接还回数据库
+ */
+@Service
+@Slf4j
+public class FlashSaleServiceImpl implements IFlashSaleService {
+
+	private static final long ADMIT_OK = 1;
+
+	private static final long ADMIT_SOLD_OUT = 0;
+
+	private static final long ADMIT_NOT_AVAILABLE = -1;
+
+	private static final int QUANTITY = 1;
+
+	private static final long FINISH_RETURN_TO_DB = 2;
+
+	@Autowired
+	private FlashSaleConfig flashSaleConfig;
+
+	@Autowired
+	private OrderTimeoutConfig orderTimeoutConfig;
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@Autowired
+	private RabbitTemplate rabbitTemplate;
+
+	@Autowired
+	private IStockService stockService;
+
+	@Autowired
+	private OrderMapper orderMapper;
+
+	@Autowired
+	private OrderItemMapper orderItemMapper;
+
+	@Autowired
+	private ProductMapper productMapper;
+
+	@Autowired
+	private ShippingMapper shippingMapper;
+
+	@Autowired
+	private IdGenerator idGenerator;
+
+	@Autowired
+	private CountCache countCache;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private final DefaultRedisScript<Long> admitScript = script("lua/flash_sale_admit.lua");
+
+	private final DefaultRedisScript<Long> finishScript = script("lua/flash_sale_finish.lua");
+
+	private final DefaultRedisScript<Long> unloadScript = script("lua/flash_sale_unload.lua");
+
+	/**
+	 * 排队号在落库事务提交后才结束，那时要还库存得另开事务
+	 */
+	private TransactionTemplate requiresNewTemplate;
+
+	private Gson gson = new Gson();
+
+	@PostConstruct
+	public void init() {
+		requiresNewTemplate = new TransactionTemplate(transactionManager);
+		requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	/**
+	 * 单独的事务，不加入调用方的事务，扣完库存马上提交
+	 */
+	@Override
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public boolean preload(Integer productId, int stock) {
+		//先用0件占住，多个实例同时启动只有一个能占到，占不到的不扣数据库
+		//数据库提交前来抢的都是已抢光，提交后才放出库存
+		String stockKey = String.format(FLASH_SALE_STOCK_REDIS_KEY_TEMPLATE, productId);
+		if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(stockKey, "0"))) {
+			return false;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				long endAt = System.currentTimeMillis() + flashSaleConfig.getDuration().toMillis();
+				redisTemplate.opsForValue().set(String.format(FLASH_SALE_END_REDIS_KEY_TEMPLATE, productId), String.valueOf(endAt));
+				redisTemplate.opsForValue().set(stockKey, String.valueOf(stock));
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				if (status != STATUS_COMMITTED) {
+					redisTemplate.delete(stockKey);
+				}
+			}
+		});
+
+		if (!stockService.decrease(Collections.singletonMap(productId, stock))) {
+			TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public int unloadIfEnded(Integer productId) {
+		return unload(productId, String.valueOf(System.currentTimeMillis()));
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public int unload(Integer productId) {
+		return unload(productId, "");
+	}
+
+	private int unload(Integer productId, String now) {
+		String stockKey = String.format(FLASH_SALE_STOCK_REDIS_KEY_TEMPLATE, productId);
+		String endKey = String.format(FLASH_SALE_END_REDIS_KEY_TEMPLATE, productId);
+		Long remaining = redisTemplate.execute(unloadScript, Arrays.asList(stockKey, endKey), now);
+		if (remaining == null || remaining < 0) {
+			return -1;
+		}
+		int quantity = remaining.intValue();
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status == STATUS_COMMITTED) {
+					return;
+				}
+				//数据库没还回去，放回redis，结束时间设成已到，下次检查再还
+				log.error("秒杀剩余库存还回数据库失败, 放回redis productId={}, quantity={}", productId, quantity);
+				redisTemplate.opsForValue().increment(stockKey, quantity);
+				redisTemplate.opsForValue().set(endKey, "0");
+			}
+		});
+		if (quantity > 0) {
+			stockService.increase(Collections.singletonMap(productId, quantity));
+		}
+		return quantity;
+	}
+
+	@Override
+	public ResponseVo<FlashSaleTicketVo> create(Integer uid, Integer productId, Integer shippingId) {
+		if (!flashSaleConfig.isEnabled()) {
+			return ResponseVo.error(ResponseEnum.FLASH_SALE_NOT_AVAILABLE);
+		}
+
+		//订单号提前生成，就是排队号
+		Long orderNo = idGenerator.nextId();
+		Long result = redisTemplate.execute(admitScript,
+				Arrays.asList(String.format(FLASH_SALE_STOCK_REDIS_KEY_TEMPLATE, productId),
+						String.format(FLASH_SALE_BUYERS_REDIS_KEY_TEMPLATE, productId),
+						String.format(FLASH_SALE_TICKET_REDIS_KEY_TEMPLATE, orderNo)),
+				String.valueOf(uid),
+				String.valueOf(FlashSaleTicketStatusEnum.QUEUING.getCode()));
+		if (result == null || result == ADMIT_NOT_AVAILABLE) {
+			return ResponseVo.error(ResponseEnum.FLASH_SALE_NOT_AVAILABLE);
+		}
+		if (result == ADMIT_SOLD_OUT) {
+			return ResponseVo.error(ResponseEnum.FLASH_SALE_SOLD_OUT);
+		}
+		if (result != ADMIT_OK) {
+			return ResponseVo.error(ResponseEnum.FLASH_SALE_REPEAT);
+		}
+
+		FlashSaleOrderMsg msg = new FlashSaleOrderMsg(orderNo, uid, productId, shippingId);
+		String body = gson.toJson(msg);
+		try {
+			//等broker确认收到再返回
+			rabbitTemplate.invoke(operations -> {
+				operations.convertAndSend(QUEUE_FLASH_SALE_ORDER, body);
+				operations.waitForConfirmsOrDie(CONFIRM_TIMEOUT_MILLIS);
+				return null;
+			});
+		} catch (AmqpException e) {
+			//broker可能已经收到了，还回资格会超卖；排队号保持排队中，重复补发没有副作用
+			log.error("秒杀消息发送失败或未确认, 需要补发到{} => {}", QUEUE_FLASH_SALE_ORDER, body, e);
+		}
+		return ResponseVo.success(new FlashSaleTicketVo(orderNo, FlashSaleTicketStatusEnum.QUEUING.getCode(), null));
+	}
+
+	@Override
+	public ResponseVo<FlashSaleTicketVo> ticket(Integer uid, Long orderNo) {
+		HashOperations<String, String, String> opsForHash = redisTemplate.opsForHash();
+		Map<String, String> ticket = opsForHash.entries(String.format(FLASH_SALE_TICKET_REDIS_KEY_TEMPLATE, orderNo));
+		if (ticket.isEmpty() || !String.valueOf(uid).equals(ticket.get("uid"))) {
+			return ResponseVo.error(ResponseEnum.FLASH_SALE_TICKET_NOT_EXIST);
+		}
+		String msg = ticket.get("msg");
+		return ResponseVo.success(new FlashSaleTicketVo(orderNo,
+				Integer.valueOf(ticket.get("status")),
+				msg == null || msg.isEmpty() ? null : msg));
+	}
+
+	@Override
+	@Transactional
+	public int materialize(List<FlashSaleOrderMsg> msgList) {
+		if (msgList.isEmpty()) {
+			return 0;
+		}
+		Set<Long> orderNoSet = msgList.stream()
+				.map(FlashSaleOrderMsg::getOrderNo)
+				.collect(Collectors.toSet());
+		Set<Long> existOrderNoSet = new HashSet<>(orderMapper.selectOrderNoByOrderNoSet(orderNoSet));
+
+		Set<Integer> productIdSet = msgList.stream()
+				.map(FlashSaleOrderMsg::getProductId)
+				.collect(Collectors.toSet());
+		Map<Integer, Product> productMap = productMapper.selectByProductIdSet(productIdSet).stream()
+				.collect(Collectors.toMap(Product::getId, Function.identity()));
+		Set<Integer> shippingIdSet = msgList.stream()
+				.map(FlashSaleOrderMsg::getShippingId)
+				.collect(Collectors.toSet());
+		Map<Integer, Shipping> shippingMap = shippingMapper.selectByIdSet(shippingIdSet).stream()
+				.collect(Collectors.toMap(Shipping::getId, Function.identity()));
+
+		List<Order> orderList = new ArrayList<>();
+		List<OrderItem> orderItemList = new ArrayList<>();
+		List<FlashSaleOrderMsg> successList = new ArrayList<>();
+		Map<FlashSaleOrderMsg, String> failedMap = new LinkedHashMap<>();
+		Set<Long> handledOrderNoSet = new HashSet<>();
+		for (FlashSaleOrderMsg msg : msgList) {
+			//同一批里重复投递的消息只处理一次
+			if (!handledOrderNoSet.add(msg.getOrderNo())) {
+				continue;
+			}
+			if (existOrderNoSet.contains(msg.getOrderNo())) {
+				successList.add(msg);
+				continue;
+			}
+			Product product = productMap.get(msg.getProductId());
+			if (product == null) {
+				failedMap.put(msg, ResponseEnum.PRODUCT_NOT_EXIST.getDesc());
+				continue;
+			}
+			Shipping shipping = shippingMap.get(msg.getShippingId());
+			if (shipping == null || !shipping.getUserId().equals(msg.getUserId())) {
+				failedMap.put(msg, ResponseEnum.SHIPPING_NOT_EXIST.getDesc());
+				continue;
+			}
+
+			List<OrderItem> itemList = Collections.singletonList(
+					OrderServiceImpl.buildOrderItem(msg.getUserId(), msg.getOrderNo(), QUANTITY, product));
+			orderList.add(OrderServiceImpl.buildOrder(msg.getUserId(), msg.getOrderNo(), msg.getShippingId(), itemList));
+			orderItemList.addAll(itemList);
+			successList.add(msg);
+		}
+
+		if (!orderList.isEmpty()) {
+			orderMapper.batchInsert(orderList);
+			orderItemMapper.batchInsert(orderItemList);
+			for (Order order : orderList) {
+				countCache.invalidateOrderCount(order.getUserId());
+			}
+		}
+
+		//提交之后再改排队号，回滚了重新投递时还是排队中
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				scheduleTimeout(orderList);
+				for (FlashSaleOrderMsg msg : successList) {
+					finish(msg, FlashSaleTicketStatusEnum.SUCCESS, "");
+				}
+				failedMap.forEach((msg, reason) -> finish(msg, FlashSaleTicketStatusEnum.FAILED, reason));
+			}
+		});
+		return orderList.size();
+	}
+
+	@Override
+	public void fail(FlashSaleOrderMsg msg, String reason) {
+		finish(msg, FlashSaleTicketStatusEnum.FAILED, reason);
+	}
+
+	/**
+	 * 排队号从排队中改成结束状态，失败的还回一件库存，重复调用只生效一次
+	 */
+	private void finish(FlashSaleOrderMsg msg, FlashSaleTicketStatusEnum status, String reason) {
+		Long result;
+		try {
+			result = redisTemplate.execute(finishScript,
+					Arrays.asList(String.format(FLASH_SALE_TICKET_REDIS_KEY_TEMPLATE, msg.getOrderNo()),
+							String.format(FLASH_SALE_STOCK_REDIS_KEY_TEMPLATE, msg.getProductId()),
+							String.format(FLASH_SALE_BUYERS_REDIS_KEY_TEMPLATE, msg.getProductId())),
+					String.valueOf(msg.getUserId()),
+					String.valueOf(FlashSaleTicketStatusEnum.QUEUING.getCode()),
+					String.valueOf(status.getCode()),
+					String.valueOf(FlashSaleTicketStatusEnum.FAILED.getCode()),
+					reason,
+					String.valueOf(flashSaleConfig.getTicketTtl().getSeconds()));
+		} catch (RuntimeException e) {
+			//订单已经落库，排队号改不了客户端查订单列表也能看到
+			log.warn("秒杀排队号更新失败 orderNo={}, status={}", msg.getOrderNo(), status, e);
+			return;
+		}
+		if (result != null && result == FINISH_RETURN_TO_DB) {
+			try {
+				requiresNewTemplate.execute(transactionStatus -> {
+					stockService.increase(Collections.singletonMap(msg.getProductId(), QUANTITY));
+					return null;
+				});
+			} catch (RuntimeException e) {
+				log.error("秒杀已结束, 失败排队号的库存还回数据库失败 orderNo={}, productId={}",
+						msg.getOrderNo(), msg.getProductId(), e);
+			}
+		}
+	}
+
+	/**
+	 * 和普通下单一样放进超时取消队列，一次ZADD
+	 */
+	private void scheduleTimeout(List<Order> orderList) {
+		if (!orderTimeoutConfig.isEnabled() || orderList.isEmpty()) {
+			return;
+		}
+		double expireAt = System.currentTimeMillis() + orderTimeoutConfig.getTimeout().toMillis();
+		Set<ZSetOperations.TypedTuple<String>> tuples = orderList.stream()
+				.map(order -> new DefaultTypedTuple<>(String.valueOf(order.getOrderNo()), expireAt))
+				.collect(Collectors.toSet());
+		try {
+			redisTemplate.opsForZSet().add(ORDER_TIMEOUT_REDIS_KEY, tuples);
+		} catch (RuntimeException e) {
+			log.warn("秒杀订单放入超时队列失败 count={}", orderList.size(), e);
+		}
+	}
+
+	private static DefaultRedisScript<Long> script(String path) {
+		DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+		script.setScriptSource(new ResourceScriptSource(new ClassPathResource(path)));
+		script.setResultType(Long.class);
+		return script;
+	}
+}
@@ -1,7 +1,11 @@
 package com.imooc.mall.service.impl;
 
+import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
+import com.imooc.mall.cache.CountCache;
+import com.imooc.mall.config.OrderTimeoutConfig;
+import com.imooc.mall.convert.VoConverter;
 import com.imooc.mall.dao.OrderItemMapper;
 import com.imooc.mall.dao.OrderMapper;
 import com.imooc.mall.dao.ProductMapper;
@@ -10,26 +14,43 @@ import com.imooc.mall.enums.OrderStatusEnum;
 import com.imooc.mall.enums.PaymentTypeEnum;
 import com.imooc.mall.enums.ProductStatusEnum;
 import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.id.IdGenerator;
+import com.imooc.mall.page.KeysetCursor;
 import com.imooc.mall.pojo.*;
 import com.imooc.mall.service.ICartService;
 import com.imooc.mall.service.IOrderService;
+import com.imooc.mall.service.IStockService;
+import com.imooc.mall.vo.CursorPageVo;
 import com.imooc.mall.vo.OrderItemVo;
 import com.imooc.mall.vo.OrderVo;
 import com.imooc.mall.vo.ResponseVo;
-import org.springframework.beans.BeanUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static com.imooc.mall.consts.MallConst.ORDER_TIMEOUT_REDIS_KEY;
+
 /**
  * Created by 廖师兄
  */
 @Service
+@Slf4j
 public class OrderServiceImpl implements IOrderService {
 
 	@Autowired
@@ -41,12 +62,34 @@ public class OrderServiceImpl implements IOrderService {
 	@Autowired
 	private ProductMapper productMapper;
 
+	@Autowired
+	private IStockService stockService;
+
 	@Autowired
 	private OrderMapper orderMapper;
 
 	@Autowired
 	private OrderItemMapper orderItemMapper;
 
+	@Autowired
+	private IdGenerator idGenerator;
+
+	@Autowired
+	private CountCache countCache;
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@Autowired
+	private OrderTimeoutConfig orderTimeoutConfig;
+
+	@Autowired
+	@Qualifier("queryExecutor")
+	private ThreadPoolTaskExecutor queryExecutor;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@Override
 	@Transactional
 	public ResponseVo<OrderVo> create(Integer uid, Integer shippingId) {
@@ -96,13 +139,14 @@ public class OrderServiceImpl implements IOrderService {
 
 			OrderItem orderItem = buildOrderItem(uid, orderNo, cart.getQuantity(), product);
 			orderItemList.add(orderItem);
+		}
 
-			//减库存
-			product.setStock(product.getStock() - cart.getQuantity());
-			int row = productMapper.updateByPrimaryKeySelective(product);
-			if (row <= 0) {
-				return ResponseVo.error(ResponseEnum.ERROR);
-			}
+		//减库存(一条条件更新，库存不够的不扣)
+		Map<Integer, Integer> quantityMap = cartList.stream()
+				.collect(Collectors.toMap(Cart::getProductId, Cart::getQuantity, Integer::sum));
+		if (!stockService.decrease(quantityMap)) {
+			TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+			return ResponseVo.error(ResponseEnum.PROODUCT_STOCK_ERROR);
 		}
 
 		//计算总价，只计算选中的商品
@@ -118,12 +162,12 @@ public class OrderServiceImpl implements IOrderService {
 		if (rowForOrderItem <= 0) {
 			return ResponseVo.error(ResponseEnum.ERROR);
 		}
+		countCache.invalidateOrderCount(uid);
+		scheduleTimeout(orderNo);
 
-		//更新购物车（选中的商品）
+		//更新购物车（选中的商品），一次HDEL
 		//Redis有事务(打包命令)，不能回滚
-		for (Cart cart : cartList) {
-			cartService.delete(uid, cart.getProductId());
-		}
+		cartService.batchDelete(uid, productIdSet);
 
 		//构造orderVo
 		OrderVo orderVo = buildOrderVo(order, orderItemList, shipping);
@@ -132,20 +176,45 @@ public class OrderServiceImpl implements IOrderService {
 
 	@Override
 	public ResponseVo<PageInfo> list(Integer uid, Integer pageNum, Integer pageSize) {
-		PageHelper.startPage(pageNum, pageSize);
-		List<Order> orderList = orderMapper.selectByUid(uid);
+		//不让PageHelper每次都count，总数走缓存
+		Page<Order> page = PageHelper.startPage(pageNum, pageSize, false);
+		List<Order> orderList = timed("orders", () -> orderMapper.selectByUid(uid));
+		List<OrderVo> orderVoList = buildOrderVoList(orderList);
+		page.setTotal(countCache.orderCount(uid, () -> orderMapper.countByUid(uid)));
+
+		PageInfo pageInfo = new PageInfo<>(orderList);
+		pageInfo.setList(orderVoList);
+
+		return ResponseVo.success(pageInfo);
+	}
+
+	@Override
+	public ResponseVo<CursorPageVo<OrderVo>> listByCursor(Integer uid, String cursor, Integer pageSize) {
+		return KeysetCursor.page(cursor, pageSize,
+				(lastId, limit) -> timed("orders", () -> orderMapper.selectByUidBeforeId(uid, lastId, limit)),
+				Order::getId,
+				this::buildOrderVoList);
+	}
+
+	private List<OrderVo> buildOrderVoList(List<Order> orderList) {
+		if (orderList.isEmpty()) {
+			return new ArrayList<>();
+		}
 
 		Set<Long> orderNoSet = orderList.stream()
 				.map(Order::getOrderNo)
 				.collect(Collectors.toSet());
-		List<OrderItem> orderItemList = orderItemMapper.selectByOrderNoSet(orderNoSet);
-		Map<Long, List<OrderItem>> orderItemMap = orderItemList.stream()
-				.collect(Collectors.groupingBy(OrderItem::getOrderNo));
-
 		Set<Integer> shippingIdSet = orderList.stream()
 				.map(Order::getShippingId)
 				.collect(Collectors.toSet());
-		List<Shipping> shippingList = shippingMapper.selectByIdSet(shippingIdSet);
+
+		//订单明细和收货地址互不依赖，明细丢到线程池，收货地址当前线程查，耗时取两者最大
+		CompletableFuture<List<OrderItem>> orderItemFuture = timedAsync("items",
+				() -> orderItemMapper.selectByOrderNoSet(orderNoSet));
+		List<Shipping> shippingList = timed("shipping", () -> shippingMapper.selectByIdSet(shippingIdSet));
+
+		Map<Long, List<OrderItem>> orderItemMap = join(orderItemFuture).stream()
+				.collect(Collectors.groupingBy(OrderItem::getOrderNo));
 		Map<Integer, Shipping> shippingMap = shippingList.stream()
 				.collect(Collectors.toMap(Shipping::getId, shipping -> shipping));
 
@@ -156,29 +225,27 @@ public class OrderServiceImpl implements IOrderService {
 					shippingMap.get(order.getShippingId()));
 			orderVoList.add(orderVo);
 		}
-		PageInfo pageInfo = new PageInfo<>(orderList);
-		pageInfo.setList(orderVoList);
-
-		return ResponseVo.success(pageInfo);
+		return orderVoList;
 	}
 
 	@Override
 	public ResponseVo<OrderVo> detail(Integer uid, Long orderNo) {
-		Order order = orderMapper.selectByOrderNo(orderNo);
+		Order order = timed("orders", () -> orderMapper.selectByOrderNo(orderNo));
 		if (order == null || !order.getUserId().equals(uid)) {
 			return ResponseVo.error(ResponseEnum.ORDER_NOT_EXIST);
 		}
 		Set<Long> orderNoSet = new HashSet<>();
 		orderNoSet.add(order.getOrderNo());
-		List<OrderItem> orderItemList = orderItemMapper.selectByOrderNoSet(orderNoSet);
+		CompletableFuture<List<OrderItem>> orderItemFuture = timedAsync("items",
+				() -> orderItemMapper.selectByOrderNoSet(orderNoSet));
+		Shipping shipping = timed("shipping", () -> shippingMapper.selectByPrimaryKey(order.getShippingId()));
 
-		Shipping shipping = shippingMapper.selectByPrimaryKey(order.getShippingId());
-
-		OrderVo orderVo = buildOrderVo(order, orderItemList, shipping);
+		OrderVo orderVo = buildOrderVo(order, join(orderItemFuture), shipping);
 		return ResponseVo.success(orderVo);
 	}
 
 	@Override
+	@Transactional
 	public ResponseVo cancel(Integer uid, Long orderNo) {
 		Order order = orderMapper.selectByOrderNo(orderNo);
 		if (order == null || !order.getUserId().equals(uid)) {
@@ -189,11 +256,9 @@ public class OrderServiceImpl implements IOrderService {
 			return ResponseVo.error(ResponseEnum.ORDER_STATUS_ERROR);
 		}
 
-		order.setStatus(OrderStatusEnum.CANCELED.getCode());
-		order.setCloseTime(new Date());
-		int row = orderMapper.updateByPrimaryKeySelective(order);
-		if (row <= 0) {
-			return ResponseVo.error(ResponseEnum.ERROR);
+		//条件更新，和超时取消、支付通知并发时只有一个能成功
+		if (batchCancel(Collections.singleton(orderNo)) <= 0) {
+			return ResponseVo.error(ResponseEnum.ORDER_STATUS_ERROR);
 		}
 
 		return ResponseVo.success();
@@ -201,32 +266,137 @@ public class OrderServiceImpl implements IOrderService {
 
     @Override
     public void paid(Long orderNo) {
+		//只有[未付款]订单可以变成[已付款]，看自己公司业务
+		//一条条件更新，和取消并发时只有一个能成功
+		int row = orderMapper.updateStatusIfCurrent(orderNo,
+				OrderStatusEnum.NO_PAY.getCode(),
+				OrderStatusEnum.PAID.getCode(),
+				new Date());
+		if (row > 0) {
+			return;
+		}
+
+		//失败了再查，区分订单不存在和状态不对
 		Order order = orderMapper.selectByOrderNo(orderNo);
 		if (order == null) {
 			throw new RuntimeException(ResponseEnum.ORDER_NOT_EXIST.getDesc() + "订单id" + orderNo);
 		}
-		//只有[未付款]订单可以变成[已付款]，看自己公司业务
-		if (!order.getStatus().equals(OrderStatusEnum.NO_PAY.getCode())) {
-			throw new RuntimeException(ResponseEnum.ORDER_STATUS_ERROR.getDesc() + "订单id" + orderNo);
+		throw new RuntimeException(ResponseEnum.ORDER_STATUS_ERROR.getDesc() + "订单id" + orderNo);
+    }
+
+	@Override
+	public int batchPaid(Set<Long> orderNoSet) {
+		if (orderNoSet.isEmpty()) {
+			return 0;
+		}
+		int row = orderMapper.batchUpdateStatus(orderNoSet,
+				OrderStatusEnum.NO_PAY.getCode(),
+				OrderStatusEnum.PAID.getCode(),
+				new Date(),
+				null);
+		if (row < orderNoSet.size()) {
+			checkUnmatchedPaid(orderNoSet);
+		}
+		return row;
+	}
+
+	/**
+	 * 没改成功的订单里，已经是[已付款]的是重复通知；
+	 * 其他的(比如付款前刚被超时取消、订单不存在)钱已经收了，记下来走退款
+	 */
+	private void checkUnmatchedPaid(Set<Long> orderNoSet) {
+		Map<Long, Integer> statusMap = orderMapper.selectByOrderNoSet(orderNoSet).stream()
+				.collect(Collectors.toMap(Order::getOrderNo, Order::getStatus));
+		for (Long orderNo : orderNoSet) {
+			Integer status = statusMap.get(orderNo);
+			if (OrderStatusEnum.PAID.getCode().equals(status)) {
+				continue;
+			}
+			meterRegistry.counter("order.paid.unmatched").increment();
+			log.error("【支付成功但订单不能改为已付款，需要退款】orderNo={}, status={}", orderNo, status);
 		}
+	}
 
-		order.setStatus(OrderStatusEnum.PAID.getCode());
-		order.setPaymentTime(new Date());
-		int row = orderMapper.updateByPrimaryKeySelective(order);
-		if (row <= 0) {
-			throw new RuntimeException("将订单更新为已支付状态失败" + "订单id:" + orderNo);
+	@Override
+	@Transactional
+	public int batchCancel(Set<Long> orderNoSet) {
+		if (orderNoSet.isEmpty()) {
+			return 0;
 		}
-    }
+		//先锁住还是[未付款]的，只给这些订单还库存
+		List<Long> noPayList = orderMapper.selectOrderNoByStatusForUpdate(orderNoSet, OrderStatusEnum.NO_PAY.getCode());
+		if (noPayList.isEmpty()) {
+			return 0;
+		}
+		Set<Long> noPaySet = new HashSet<>(noPayList);
+		int row = orderMapper.batchUpdateStatus(noPaySet,
+				OrderStatusEnum.NO_PAY.getCode(),
+				OrderStatusEnum.CANCELED.getCode(),
+				null,
+				new Date());
+
+		Map<Integer, Integer> quantityMap = orderItemMapper.selectByOrderNoSet(noPaySet).stream()
+				.collect(Collectors.toMap(OrderItem::getProductId, OrderItem::getQuantity, Integer::sum));
+		stockService.increase(quantityMap);
+		return row;
+	}
+
+	/**
+	 * 记录订单查询每个阶段的耗时: order.query{stage=orders|items|shipping}
+	 */
+	private <T> T timed(String stage, Supplier<T> supplier) {
+		return meterRegistry.timer("order.query", "stage", stage).record(supplier);
+	}
+
+	private <T> CompletableFuture<T> timedAsync(String stage, Supplier<T> supplier) {
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			//事务里要用同一个连接查，换了线程看不到本事务还没提交的数据
+			return CompletableFuture.completedFuture(timed(stage, supplier));
+		}
+		return CompletableFuture.supplyAsync(() -> timed(stage, supplier), queryExecutor);
+	}
+
+	/**
+	 * 还原成查询抛出的异常，交给RuntimeExceptionHandler
+	 */
+	private <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * 提交之后再放进延时队列，不然可能在提交前就被扫到、查不到订单而丢掉
+	 * redis写失败不影响下单，由定时扫库兜底
+	 */
+	private void scheduleTimeout(Long orderNo) {
+		if (!orderTimeoutConfig.isEnabled()) {
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				long expireAt = System.currentTimeMillis() + orderTimeoutConfig.getTimeout().toMillis();
+				try {
+					redisTemplate.opsForZSet().add(ORDER_TIMEOUT_REDIS_KEY, String.valueOf(orderNo), expireAt);
+				} catch (RuntimeException e) {
+					log.warn("订单放入超时队列失败 orderNo={}", orderNo, e);
+				}
+			}
+		});
+	}
 
     private OrderVo buildOrderVo(Order order, List<OrderItem> orderItemList, Shipping shipping) {
-		OrderVo orderVo = new OrderVo();
-		BeanUtils.copyProperties(order, orderVo);
-
-		List<OrderItemVo> OrderItemVoList = orderItemList.stream().map(e -> {
-			OrderItemVo orderItemVo = new OrderItemVo();
-			BeanUtils.copyProperties(e, orderItemVo);
-			return orderItemVo;
-		}).collect(Collectors.toList());
+		OrderVo orderVo = VoConverter.toOrderVo(order);
+
+		List<OrderItemVo> OrderItemVoList = orderItemList.stream()
+				.map(VoConverter::toOrderItemVo)
+				.collect(Collectors.toList());
 		orderVo.setOrderItemVoList(OrderItemVoList);
 
 		if (shipping != null) {
@@ -237,11 +407,14 @@ public class OrderServiceImpl implements IOrderService {
 		return orderVo;
 	}
 
-	private Order buildOrder(Integer uid,
-							 Long orderNo,
-							 Integer shippingId,
-							 List<OrderItem> orderItemList
-							 ) {
+	/**
+	 * 秒杀落库也用，见 FlashSaleServiceImpl
+	 */
+	static Order buildOrder(Integer uid,
+							Long orderNo,
+							Integer shippingId,
+							List<OrderItem> orderItemList
+							) {
 		BigDecimal payment = orderItemList.stream()
 				.map(OrderItem::getTotalPrice)
 				.reduce(BigDecimal.ZERO, BigDecimal::add);
@@ -262,10 +435,10 @@ public class OrderServiceImpl implements IOrderService {
 	 * @return
 	 */
 	private Long generateOrderNo() {
-		return System.currentTimeMillis() + new Random().nextInt(999);
+		return idGenerator.nextId();
 	}
 
-	private OrderItem buildOrderItem(Integer uid, Long orderNo, Integer quantity, Product product) {
+	static OrderItem buildOrderItem(Integer uid, Long orderNo, Integer quantity, Product product) {
 		OrderItem item = new OrderItem();
 		item.setUserId(uid);
 		item.setOrderNo(orderNo);
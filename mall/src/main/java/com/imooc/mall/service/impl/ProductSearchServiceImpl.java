@@ -0,0 +1,226 @@
+package com.imooc.mall.service.impl;
+
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageInfo;
+import com.imooc.mall.cache.ProductDetailCache;
+import com.imooc.mall.convert.VoConverter;
+import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.enums.ProductStatusEnum;
+import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.pojo.Product;
+import com.imooc.mall.search.ProductSearchIndex;
+import com.imooc.mall.service.IProductSearchService;
+import com.imooc.mall.vo.ProductVo;
+import com.imooc.mall.vo.ResponseVo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内倒排索引，启动后在后台从数据库分批加载在售商品，不用 like '%x%' 扫表
+ * 靠 product_invalidate 频道逐个商品更新；频道消息可能丢，另外定时比对版本戳，变了就整个重建
+ */
+@Service
+@Slf4j
+public class ProductSearchServiceImpl implements IProductSearchService {
+
+	private final static int BUILD_BATCH_SIZE = 500;
+
+	private final static int MAX_KEYWORD_LENGTH = 50;
+
+	/**
+	 * 隔多久去数据库比对一次版本戳
+	 */
+	private final static long VERSION_CHECK_INTERVAL_SECONDS = 60;
+
+	@Autowired
+	private ProductMapper productMapper;
+
+	@Autowired
+	private RedisMessageListenerContainer listenerContainer;
+
+	private volatile ProductSearchIndex searchIndex;
+
+	private volatile String indexVersion;
+
+	private volatile boolean building;
+
+	private ScheduledExecutorService scheduler;
+
+	private final ReentrantLock buildLock = new ReentrantLock();
+
+	private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+
+	/**
+	 * 构建期间有变更的商品，建完再补一次
+	 */
+	private final Set<Integer> changedWhileBuilding = ConcurrentHashMap.newKeySet();
+
+	@PostConstruct
+	public void init() {
+		listenerContainer.addMessageListener(
+				(message, pattern) -> refresh(Integer.valueOf(new String(message.getBody(), StandardCharsets.UTF_8))),
+				new ChannelTopic(ProductDetailCache.PRODUCT_INVALIDATE_CHANNEL));
+
+		//第一次马上建，之后定时检查
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("product-search-");
+		threadFactory.setDaemon(true);
+		scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		scheduler.scheduleWithFixedDelay(this::rebuildIfChanged,
+				0, VERSION_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	@Override
+	public ResponseVo<PageInfo> search(String keyword, Integer pageNum, Integer pageSize) {
+		if (StringUtils.isEmpty(keyword) || keyword.length() > MAX_KEYWORD_LENGTH) {
+			return ResponseVo.error(ResponseEnum.PARAM_ERROR, "keyword长度必须在1到" + MAX_KEYWORD_LENGTH + "之间");
+		}
+		if (pageNum <= 0 || pageSize <= 0) {
+			return ResponseVo.error(ResponseEnum.PARAM_ERROR);
+		}
+
+		ProductSearchIndex index = getSearchIndex();
+		List<ProductVo> hits;
+		indexLock.readLock().lock();
+		try {
+			hits = index.search(keyword);
+		} finally {
+			indexLock.readLock().unlock();
+		}
+
+		int from = (int) Math.min((long) (pageNum - 1) * pageSize, hits.size());
+		int to = Math.min(from + pageSize, hits.size());
+		Page<ProductVo> page = new Page<>(pageNum, pageSize);
+		page.setTotal(hits.size());
+		page.addAll(hits.subList(from, to));
+		return ResponseVo.success(new PageInfo<>(page));
+	}
+
+	@Override
+	public void refresh(Integer productId) {
+		if (building || searchIndex == null) {
+			//正在构建，新的索引可能没扫到，建完再补一次
+			changedWhileBuilding.add(productId);
+		}
+		//先记下来再取，刚好建完时拿到的就是新的索引
+		ProductSearchIndex index = searchIndex;
+		if (index == null) {
+			return;
+		}
+
+		Product product = productMapper.selectByPrimaryKey(productId);
+		indexLock.writeLock().lock();
+		try {
+			if (product == null || !ProductStatusEnum.ON_SALE.getCode().equals(product.getStatus())) {
+				index.remove(productId);
+			} else {
+				index.put(buildProductVo(product));
+			}
+		} finally {
+			indexLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * 后台还没建好时来的搜索，等它建完(或者自己建)
+	 */
+	private ProductSearchIndex getSearchIndex() {
+		ProductSearchIndex index = searchIndex;
+		if (index != null) {
+			return index;
+		}
+		buildLock.lock();
+		try {
+			if (searchIndex == null) {
+				rebuild(productMapper.selectSearchVersion());
+			}
+			return searchIndex;
+		} finally {
+			buildLock.unlock();
+		}
+	}
+
+	private void rebuildIfChanged() {
+		try {
+			String version = productMapper.selectSearchVersion();
+			if (searchIndex != null && Objects.equals(indexVersion, version)) {
+				return;
+			}
+			buildLock.lock();
+			try {
+				rebuild(version);
+			} finally {
+				buildLock.unlock();
+			}
+		} catch (RuntimeException e) {
+			log.warn("商品搜索索引重建失败, 继续用旧的", e);
+		}
+	}
+
+	/**
+	 * 建好新索引再整个替换，构建期间搜索继续用旧的
+	 * 版本戳在构建前取，构建期间的变动下一轮检查还能发现
+	 */
+	private void rebuild(String version) {
+		building = true;
+		try {
+			searchIndex = buildSearchIndex();
+			indexVersion = version;
+		} finally {
+			building = false;
+		}
+		for (Integer productId : changedWhileBuilding) {
+			changedWhileBuilding.remove(productId);
+			refresh(productId);
+		}
+	}
+
+	/**
+	 * 按id分批加载，不一次把整张表读进内存
+	 */
+	private ProductSearchIndex buildSearchIndex() {
+		long begin = System.currentTimeMillis();
+		ProductSearchIndex index = new ProductSearchIndex();
+		Integer lastId = null;
+		while (true) {
+			List<Product> productList = productMapper.selectListByCategoryIdSetAfterId(
+					Collections.emptySet(), lastId, BUILD_BATCH_SIZE);
+			for (Product product : productList) {
+				index.put(buildProductVo(product));
+			}
+			if (productList.size() < BUILD_BATCH_SIZE) {
+				break;
+			}
+			lastId = productList.get(productList.size() - 1).getId();
+		}
+		log.info("商品搜索索引构建完成 size={}, 耗时{}ms", index.size(), System.currentTimeMillis() - begin);
+		return index;
+	}
+
+	private ProductVo buildProductVo(Product product) {
+		return VoConverter.toProductVo(product);
+	}
+}
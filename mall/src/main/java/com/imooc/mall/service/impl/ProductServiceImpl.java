@@ -1,16 +1,25 @@
 package com.imooc.mall.service.impl;
 
+import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
+import com.imooc.mall.cache.CountCache;
+import com.imooc.mall.cache.ProductDetailCache;
+import com.imooc.mall.cache.ProductIdFilter;
+import com.imooc.mall.config.PageCountConfig;
+import com.imooc.mall.convert.VoConverter;
 import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.page.KeysetCursor;
 import com.imooc.mall.pojo.Product;
 import com.imooc.mall.service.ICategoryService;
 import com.imooc.mall.service.IProductService;
+import com.imooc.mall.vo.CursorPageVo;
+import com.imooc.mall.vo.PageInfoVo;
 import com.imooc.mall.vo.ProductDetailVo;
 import com.imooc.mall.vo.ProductVo;
 import com.imooc.mall.vo.ResponseVo;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -20,6 +29,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.imooc.mall.enums.ProductStatusEnum.*;
+import static com.imooc.mall.enums.ResponseEnum.PRODUCT_NOT_EXIST;
 import static com.imooc.mall.enums.ResponseEnum.PRODUCT_OFF_SALE_OR_DELETE;
 
 /**
@@ -35,6 +45,18 @@ public class ProductServiceImpl implements IProductService {
 	@Autowired
 	private ProductMapper productMapper;
 
+	@Autowired
+	private ProductDetailCache productDetailCache;
+
+	@Autowired
+	private ProductIdFilter productIdFilter;
+
+	@Autowired
+	private CountCache countCache;
+
+	@Autowired
+	private PageCountConfig pageCountConfig;
+
 	@Override
 	public ResponseVo<PageInfo> list(Integer categoryId, Integer pageNum, Integer pageSize) {
 		Set<Integer> categoryIdSet = new HashSet<>();
@@ -43,35 +65,78 @@ public class ProductServiceImpl implements IProductService {
 			categoryIdSet.add(categoryId);
 		}
 
-		PageHelper.startPage(pageNum, pageSize);
-		List<Product> productList = productMapper.selectByCategoryIdSet(categoryIdSet);
-		List<ProductVo> productVoList = productList.stream()
-				.map(e -> {
-					ProductVo productVo = new ProductVo();
-					BeanUtils.copyProperties(e, productVo);
-					return productVo;
-				})
-				.collect(Collectors.toList());
+		//不让PageHelper每次都count，总数走缓存
+		Page<Product> page = PageHelper.startPage(pageNum, pageSize, false);
+		List<Product> productList = productMapper.selectListByCategoryIdSet(categoryIdSet);
+		List<ProductVo> productVoList = buildProductVoList(productList);
+
+		long threshold = pageCountConfig.getApproximateThreshold();
+		Long countLimit = threshold > 0 ? threshold : null;
+		long total = countCache.productCount(categoryIdSet,
+				() -> productMapper.countByCategoryIdSet(categoryIdSet, countLimit));
+		page.setTotal(total);
 
-		PageInfo pageInfo = new PageInfo<>(productList);
-		pageInfo.setList(productVoList);
+		PageInfoVo<ProductVo> pageInfo = PageInfoVo.of(page, productVoList);
+		if (countLimit != null && total >= countLimit) {
+			//总数是估算的，只要这一页是满的就认为还有下一页
+			pageInfo.setTotalApproximate(true);
+			if (productList.size() == pageSize) {
+				pageInfo.setHasNextPage(true);
+				pageInfo.setIsLastPage(false);
+			}
+		}
 		return ResponseVo.success(pageInfo);
 	}
 
+	@Override
+	public ResponseVo<CursorPageVo<ProductVo>> listByCursor(Integer categoryId, String cursor, Integer pageSize) {
+		Set<Integer> categoryIdSet = new HashSet<>();
+		if (categoryId != null) {
+			categoryService.findSubCategoryId(categoryId, categoryIdSet);
+			categoryIdSet.add(categoryId);
+		}
+		return KeysetCursor.page(cursor, pageSize,
+				(lastId, limit) -> productMapper.selectListByCategoryIdSetAfterId(categoryIdSet, lastId, limit),
+				Product::getId,
+				this::buildProductVoList);
+	}
+
 	@Override
 	public ResponseVo<ProductDetailVo> detail(Integer productId) {
-		Product product = productMapper.selectByPrimaryKey(productId);
+		ResponseEnum rejected = productIdFilter.reject(productId);
+		if (rejected != null) {
+			return ResponseVo.error(rejected);
+		}
+
+		ProductDetailVo productDetailVo = productDetailCache.get(productId, this::loadProductDetail);
+		if (productDetailVo == null) {
+			return ResponseVo.error(PRODUCT_NOT_EXIST);
+		}
 
 		//只对确定性条件判断
-		if (product.getStatus().equals(OFF_SALE.getCode())
-				|| product.getStatus().equals(DELETE.getCode())) {
+		if (productDetailVo.getStatus().equals(OFF_SALE.getCode())
+				|| productDetailVo.getStatus().equals(DELETE.getCode())) {
 			return ResponseVo.error(PRODUCT_OFF_SALE_OR_DELETE);
 		}
+		return ResponseVo.success(productDetailVo);
+	}
+
+	private ProductDetailVo loadProductDetail(Integer productId) {
+		Product product = productMapper.selectByPrimaryKey(productId);
+		if (product == null) {
+			productIdFilter.markRejected(productId, PRODUCT_NOT_EXIST);
+			return null;
+		}
 
-		ProductDetailVo productDetailVo = new ProductDetailVo();
-		BeanUtils.copyProperties(product, productDetailVo);
-		//敏感数据处理
+		ProductDetailVo productDetailVo = VoConverter.toProductDetailVo(product);
+		//敏感数据处理(缓存里存的就是处理过的)
 		productDetailVo.setStock(product.getStock() > 100 ? 100 : product.getStock());
-		return ResponseVo.success(productDetailVo);
+		return productDetailVo;
+	}
+
+	private List<ProductVo> buildProductVoList(List<Product> productList) {
+		return productList.stream()
+				.map(VoConverter::toProductVo)
+				.collect(Collectors.toList());
 	}
 }
@@ -0,0 +1,88 @@
+package com.imooc.mall.service.impl;
+
+import com.google.gson.Gson;
+import com.imooc.mall.cache.LocalCache;
+import com.imooc.mall.config.SessionConfig;
+import com.imooc.mall.pojo.User;
+import com.imooc.mall.service.ISessionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis里存登录态，本机再缓存几秒，避免每个请求都访问redis
+ * 登出时通过redis频道通知其他节点删掉本机缓存
+ */
+@Service
+public class SessionServiceImpl implements ISessionService {
+
+	private final static String SESSION_REDIS_KEY_TEMPLATE = "session_%s";
+
+	private final static String SESSION_INVALIDATE_CHANNEL = "session_invalidate";
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@Autowired
+	private RedisMessageListenerContainer listenerContainer;
+
+	@Autowired
+	private SessionConfig sessionConfig;
+
+	private Gson gson = new Gson();
+
+	private LocalCache<String, User> nearCache;
+
+	@PostConstruct
+	public void init() {
+		nearCache = new LocalCache<>(sessionConfig.getNearCacheSize(), sessionConfig.getNearCacheTtl().toMillis());
+		listenerContainer.addMessageListener(
+				(message, pattern) -> nearCache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+				new ChannelTopic(SESSION_INVALIDATE_CHANNEL));
+	}
+
+	@Override
+	public String create(User user) {
+		String token = UUID.randomUUID().toString().replace("-", "");
+		redisTemplate.opsForValue().set(String.format(SESSION_REDIS_KEY_TEMPLATE, token),
+				gson.toJson(user),
+				sessionConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+		nearCache.put(token, user);
+		return token;
+	}
+
+	@Override
+	public User get(String token) {
+		User user = nearCache.get(token);
+		if (user != null) {
+			return user;
+		}
+
+		String redisKey = String.format(SESSION_REDIS_KEY_TEMPLATE, token);
+		String value = redisTemplate.opsForValue().get(redisKey);
+		if (StringUtils.isEmpty(value)) {
+			return null;
+		}
+		//访问一次续期一次(本机缓存命中期间不续期)
+		redisTemplate.expire(redisKey, sessionConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+
+		user = gson.fromJson(value, User.class);
+		nearCache.put(token, user);
+		return user;
+	}
+
+	@Override
+	public void remove(String token) {
+		redisTemplate.delete(String.format(SESSION_REDIS_KEY_TEMPLATE, token));
+		nearCache.invalidate(token);
+		redisTemplate.convertAndSend(SESSION_INVALIDATE_CHANNEL, token);
+	}
+}
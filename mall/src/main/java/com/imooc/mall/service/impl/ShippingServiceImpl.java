@@ -2,19 +2,22 @@ package com.imooc.mall.service.impl;
 
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
+import com.imooc.mall.convert.VoConverter;
 import com.imooc.mall.dao.ShippingMapper;
 import com.imooc.mall.enums.ResponseEnum;
 import com.imooc.mall.form.ShippingForm;
+import com.imooc.mall.page.KeysetCursor;
 import com.imooc.mall.pojo.Shipping;
 import com.imooc.mall.service.IShippingService;
+import com.imooc.mall.vo.CursorPageVo;
 import com.imooc.mall.vo.ResponseVo;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Created by 廖师兄
@@ -28,7 +31,7 @@ public class ShippingServiceImpl implements IShippingService {
 	@Override
 	public ResponseVo<Map<String, Integer>> add(Integer uid, ShippingForm form) {
 		Shipping shipping = new Shipping();
-		BeanUtils.copyProperties(form, shipping);
+		VoConverter.copyToShipping(form, shipping);
 		shipping.setUserId(uid);
 		int row = shippingMapper.insertSelective(shipping);
 		if (row == 0) {
@@ -54,7 +57,7 @@ public class ShippingServiceImpl implements IShippingService {
 	@Override
 	public ResponseVo update(Integer uid, Integer shippingId, ShippingForm form) {
 		Shipping shipping = new Shipping();
-		BeanUtils.copyProperties(form, shipping);
+		VoConverter.copyToShipping(form, shipping);
 		shipping.setUserId(uid);
 		shipping.setId(shippingId);
 		int row = shippingMapper.updateByPrimaryKeySelective(shipping);
@@ -71,4 +74,12 @@ public class ShippingServiceImpl implements IShippingService {
 		PageInfo pageInfo = new PageInfo(shippings);
 		return ResponseVo.success(pageInfo);
 	}
+
+	@Override
+	public ResponseVo<CursorPageVo<Shipping>> listByCursor(Integer uid, String cursor, Integer pageSize) {
+		return KeysetCursor.page(cursor, pageSize,
+				(lastId, limit) -> shippingMapper.selectByUidAfterId(uid, lastId, limit),
+				Shipping::getId,
+				Function.identity());
+	}
 }
@@ -0,0 +1,79 @@
+package com.imooc.mall.service.impl;
+
+import com.imooc.mall.cache.ProductDetailCache;
+import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.service.IStockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 扣库存用 stock = stock - ? where stock >= ? 的条件更新，
+ * 由数据库行锁保证并发下不超卖，不再 先查-再判断-再写回
+ * 商品详情缓存里有库存，事务提交后失效掉改过的商品
+ */
+@Service
+@Slf4j
+public class StockServiceImpl implements IStockService {
+
+	@Autowired
+	private ProductMapper productMapper;
+
+	@Autowired
+	private ProductDetailCache productDetailCache;
+
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public boolean decrease(Map<Integer, Integer> quantityMap) {
+		if (quantityMap.isEmpty()) {
+			return true;
+		}
+		//按id排序，多个订单同时扣同一批商品时加锁顺序一致
+		int row = productMapper.batchDecreaseStock(new TreeMap<>(quantityMap));
+		if (row < quantityMap.size()) {
+			log.info("库存不足 quantityMap={}, row={}", quantityMap, row);
+			return false;
+		}
+		invalidateAfterCommit(quantityMap.keySet());
+		return true;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void increase(Map<Integer, Integer> quantityMap) {
+		if (quantityMap.isEmpty()) {
+			return;
+		}
+		productMapper.batchIncreaseStock(new TreeMap<>(quantityMap));
+		invalidateAfterCommit(quantityMap.keySet());
+	}
+
+	/**
+	 * 提交前失效的话，别的请求可能又把旧库存读进缓存
+	 */
+	private void invalidateAfterCommit(Set<Integer> productIdSet) {
+		Set<Integer> idSet = new HashSet<>(productIdSet);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				for (Integer productId : idSet) {
+					try {
+						productDetailCache.invalidateStock(productId);
+					} catch (RuntimeException e) {
+						//最多显示旧库存到缓存过期，不影响下单
+						log.warn("商品详情缓存失效失败 productId={}", productId, e);
+					}
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,32 @@
+package com.imooc.mall.vo;
+
+import com.imooc.mall.page.KeysetCursor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页: 不返回总数，客户端带上nextCursor取下一页，nextCursor为null说明没有下一页了
+ */
+@Data
+public class CursorPageVo<T> {
+
+	private List<T> list;
+
+	private Boolean hasNextPage;
+
+	private String nextCursor;
+
+	/**
+	 * @param lastId 本页最后一条的id
+	 */
+	public static <T> CursorPageVo<T> of(List<T> list, boolean hasNextPage, Integer lastId) {
+		CursorPageVo<T> cursorPageVo = new CursorPageVo<>();
+		cursorPageVo.setList(list);
+		cursorPageVo.setHasNextPage(hasNextPage);
+		if (hasNextPage) {
+			cursorPageVo.setNextCursor(KeysetCursor.encode(lastId));
+		}
+		return cursorPageVo;
+	}
+}
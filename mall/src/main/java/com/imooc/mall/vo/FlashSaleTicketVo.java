@@ -0,0 +1,24 @@
+package com.imooc.mall.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 秒杀排队号, 下单成功后用orderNo查订单详情
+ */
+@Data
+@AllArgsConstructor
+public class FlashSaleTicketVo {
+
+	private Long orderNo;
+
+	/**
+	 * 见 FlashSaleTicketStatusEnum
+	 */
+	private Integer status;
+
+	/**
+	 * 下单失败的原因
+	 */
+	private String msg;
+}
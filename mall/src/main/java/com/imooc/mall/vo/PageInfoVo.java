@@ -0,0 +1,37 @@
+package com.imooc.mall.vo;
+
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageInfo;
+
+import java.util.List;
+
+/**
+ * PageInfo + 总数是否是估算的
+ * totalApproximate=true 时 total 表示"至少有这么多"
+ */
+public class PageInfoVo<T> extends PageInfo<T> {
+
+	private boolean totalApproximate;
+
+	public PageInfoVo(List<T> list) {
+		super(list);
+	}
+
+	/**
+	 * 分页信息取查询返回的page，列表换成转换好的vo
+	 */
+	public static <T> PageInfoVo<T> of(Page<?> page, List<T> list) {
+		Page<T> voPage = new Page<>(page.getPageNum(), page.getPageSize());
+		voPage.setTotal(page.getTotal());
+		voPage.addAll(list);
+		return new PageInfoVo<>(voPage);
+	}
+
+	public boolean isTotalApproximate() {
+		return totalApproximate;
+	}
+
+	public void setTotalApproximate(boolean totalApproximate) {
+		this.totalApproximate = totalApproximate;
+	}
+}
@@ -0,0 +1,19 @@
+-- 秒杀资格: 有库存且没抢到过 -> 扣一件、记下这个用户、生成排队中的排队号, 原子执行
+-- 排队中的排队号不过期，积压多久都能等到落库，结束时才设置过期时间
+-- KEYS[1]=库存 KEYS[2]=抢到过的用户 KEYS[3]=排队号
+-- ARGV[1]=uid ARGV[2]=排队中状态
+-- 返回 1:抢到 0:已抢光 -1:不在秒杀中 -2:已经抢到过
+local stock = tonumber(redis.call('get', KEYS[1]))
+if stock == nil then
+  return -1
+end
+if redis.call('sismember', KEYS[2], ARGV[1]) == 1 then
+  return -2
+end
+if stock <= 0 then
+  return 0
+end
+redis.call('decr', KEYS[1])
+redis.call('sadd', KEYS[2], ARGV[1])
+redis.call('hmset', KEYS[3], 'uid', ARGV[1], 'status', ARGV[2])
+return 1
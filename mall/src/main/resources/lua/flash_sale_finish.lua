@@ -0,0 +1,19 @@
+-- 排队号结束: 只处理还在排队中的(重复投递不会重复还库存)
+-- 失败时还回一件库存、允许这个用户再抢；结束后的排队号留给客户端查一段时间再过期
+-- 秒杀已经结束(库存key已删)时不能还回redis, 返回2由调用方还回数据库
+-- KEYS[1]=排队号 KEYS[2]=库存 KEYS[3]=抢到过的用户
+-- ARGV[1]=uid ARGV[2]=排队中状态 ARGV[3]=结束状态 ARGV[4]=失败状态 ARGV[5]=失败原因 ARGV[6]=过期时间(秒)
+-- 返回 1:已处理 2:已处理, 这件要还回数据库 0:不是排队中(已处理过或已过期)
+if redis.call('hget', KEYS[1], 'status') ~= ARGV[2] then
+  return 0
+end
+redis.call('hmset', KEYS[1], 'status', ARGV[3], 'msg', ARGV[5])
+redis.call('expire', KEYS[1], ARGV[6])
+if ARGV[3] == ARGV[4] then
+  redis.call('srem', KEYS[3], ARGV[1])
+  if redis.call('exists', KEYS[2]) == 0 then
+    return 2
+  end
+  redis.call('incr', KEYS[2])
+end
+return 1
@@ -0,0 +1,17 @@
+-- 秒杀结束: 取走redis里剩下的库存并删掉库存key, 之后再来抢的都是不在秒杀中
+-- 多个实例同时检查只有一个能取到
+-- KEYS[1]=库存 KEYS[2]=结束时间
+-- ARGV[1]=当前时间(毫秒), 空字符串表示不看结束时间直接结束
+-- 返回 剩余件数, -1:不在秒杀中或者还没到结束时间
+local stock = tonumber(redis.call('get', KEYS[1]))
+if stock == nil then
+  return -1
+end
+if ARGV[1] ~= '' then
+  local endAt = tonumber(redis.call('get', KEYS[2]))
+  if endAt == nil or endAt > tonumber(ARGV[1]) then
+    return -1
+  end
+end
+redis.call('del', KEYS[1], KEYS[2])
+return stock
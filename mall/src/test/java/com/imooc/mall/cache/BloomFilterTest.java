@@ -0,0 +1,60 @@
+package com.imooc.mall.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 不需要启动spring
+ */
+@Slf4j
+public class BloomFilterTest {
+
+	private static final int INSERTIONS = 100000;
+
+	private static final double FPP = 0.01;
+
+	@Test
+	public void noFalseNegative() {
+		BloomFilter bloomFilter = BloomFilter.create(INSERTIONS, FPP);
+		for (int id = 1; id <= INSERTIONS; id++) {
+			bloomFilter.put(id);
+		}
+		for (int id = 1; id <= INSERTIONS; id++) {
+			Assert.assertTrue(bloomFilter.mightContain(id));
+		}
+	}
+
+	@Test
+	public void falsePositiveRateWithinBound() {
+		BloomFilter bloomFilter = BloomFilter.create(INSERTIONS, FPP);
+		for (int id = 1; id <= INSERTIONS; id++) {
+			bloomFilter.put(id);
+		}
+
+		//爬虫一般是拿连续的、比现有大的id来试
+		int falsePositive = 0;
+		for (int id = INSERTIONS + 1; id <= INSERTIONS * 11; id++) {
+			if (bloomFilter.mightContain(id)) {
+				falsePositive++;
+			}
+		}
+		double rate = (double) falsePositive / (INSERTIONS * 10);
+		log.info("bit数: {}, hash次数: {}, 误判率: {}", bloomFilter.getBitSize(), bloomFilter.getHashCount(), rate);
+		Assert.assertTrue(rate < FPP * 1.5);
+	}
+
+	@Test
+	public void negativeKey() {
+		BloomFilter bloomFilter = BloomFilter.create(INSERTIONS, FPP);
+		bloomFilter.put(-1);
+		bloomFilter.put(Integer.MIN_VALUE);
+		Assert.assertTrue(bloomFilter.mightContain(-1));
+		Assert.assertTrue(bloomFilter.mightContain(Integer.MIN_VALUE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void illegalFpp() {
+		BloomFilter.create(INSERTIONS, 1);
+	}
+}
@@ -0,0 +1,71 @@
+package com.imooc.mall.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 不需要启动spring
+ */
+public class LocalCacheTest {
+
+	private static final int THREAD_COUNT = 16;
+
+	@Test
+	public void evictLeastRecentlyAccessed() throws Exception {
+		LocalCache<Integer, String> cache = new LocalCache<>(100, 60 * 1000);
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, "v" + i);
+		}
+		//访问时间是毫秒精度，隔开一点
+		Thread.sleep(5);
+		cache.get(0);
+		cache.get(1);
+
+		cache.put(100, "v100");
+		Assert.assertTrue(cache.size() <= 100);
+		Assert.assertTrue(cache.getEvictionCount() > 0);
+		Assert.assertEquals("v0", cache.get(0));
+		Assert.assertEquals("v1", cache.get(1));
+		Assert.assertEquals("v100", cache.get(100));
+	}
+
+	@Test
+	public void expire() throws Exception {
+		LocalCache<Integer, String> cache = new LocalCache<>(100, 10);
+		cache.put(1, "v1");
+		Assert.assertEquals("v1", cache.get(1));
+		Thread.sleep(20);
+		Assert.assertNull(cache.get(1));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void concurrentPutStaysBounded() throws Exception {
+		LocalCache<Integer, Integer> cache = new LocalCache<>(1000, 60 * 1000);
+		ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREAD_COUNT; t++) {
+			int base = t * 10000;
+			futures.add(executorService.submit(() -> {
+				for (int i = 0; i < 10000; i++) {
+					cache.put(base + i, i);
+					cache.get(base + i / 2);
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executorService.shutdown();
+
+		//最后一次淘汰之后其他线程可能又put了几条
+		cache.put(-1, -1);
+		Assert.assertTrue("size=" + cache.size(), cache.size() <= 1000 + THREAD_COUNT);
+	}
+}
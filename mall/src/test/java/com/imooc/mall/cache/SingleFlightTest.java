@@ -0,0 +1,122 @@
+package com.imooc.mall.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 不需要启动spring
+ */
+public class SingleFlightTest {
+
+	private static final int THREAD_COUNT = 32;
+
+	@Test
+	public void concurrentCallersShareOneLoad() throws Exception {
+		SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+		AtomicInteger loadCount = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+		List<Future<String>> futures = new ArrayList<>();
+		futures.add(executorService.submit(() -> singleFlight.load(1, id -> {
+			loadCount.incrementAndGet();
+			loading.countDown();
+			await(release);
+			return "product" + id;
+		})));
+		loading.await();
+		for (int i = 1; i < THREAD_COUNT; i++) {
+			futures.add(executorService.submit(() -> singleFlight.load(1, id -> {
+				loadCount.incrementAndGet();
+				return "again";
+			})));
+		}
+		//等其他线程都挂到第一次加载上
+		while (singleFlight.getSharedCount() < THREAD_COUNT - 1) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		for (Future<String> future : futures) {
+			Assert.assertEquals("product1", future.get());
+		}
+		executorService.shutdown();
+		Assert.assertEquals(1, loadCount.get());
+
+		//加载完不缓存，下次重新加载
+		Assert.assertEquals("again", singleFlight.load(1, id -> "again"));
+	}
+
+	@Test
+	public void exceptionReachesEveryCaller() throws Exception {
+		SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		Future<String> first = executorService.submit(() -> singleFlight.load(1, id -> {
+			loading.countDown();
+			await(release);
+			throw new IllegalStateException("db down");
+		}));
+		loading.await();
+		Future<String> second = executorService.submit(() -> singleFlight.load(1, id -> "never"));
+		while (singleFlight.getSharedCount() < 1) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		for (Future<String> future : new Future[]{first, second}) {
+			try {
+				future.get();
+				Assert.fail();
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+		}
+		executorService.shutdown();
+	}
+
+	@Test
+	public void loadAsyncDeduplicates() throws Exception {
+		SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+		CompletableFuture<String> first = singleFlight.loadAsync(1, id -> {
+			await(release);
+			return "refreshed";
+		}, executorService);
+		CompletableFuture<String> second = singleFlight.loadAsync(1, id -> "never", executorService);
+		Assert.assertSame(first, second);
+
+		release.countDown();
+		Assert.assertEquals("refreshed", first.get());
+		executorService.shutdown();
+	}
+
+	@Test
+	public void loadAsyncRejected() {
+		SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+		CompletableFuture<String> future = singleFlight.loadAsync(1, id -> "never", command -> {
+			throw new RejectedExecutionException();
+		});
+		Assert.assertTrue(future.isCompletedExceptionally());
+		//被拒绝后不会一直占着这个key
+		Assert.assertEquals("ok", singleFlight.load(1, id -> "ok"));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
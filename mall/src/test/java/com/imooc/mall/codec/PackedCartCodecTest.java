@@ -0,0 +1,36 @@
+package com.imooc.mall.codec;
+
+import com.imooc.mall.pojo.Cart;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 不需要启动spring
+ */
+public class PackedCartCodecTest {
+
+	private CartCodec cartCodec = new PackedCartCodec();
+
+	@Test
+	public void roundTrip() {
+		for (Cart cart : new Cart[]{
+				new Cart(26, 1, true),
+				new Cart(27, 0, false),
+				new Cart(28, Integer.MAX_VALUE, true)}) {
+			String value = cartCodec.encode(cart);
+			Assert.assertEquals(cart, cartCodec.decode(cart.getProductId(), value));
+		}
+	}
+
+	@Test
+	public void valueIsPlainInteger() {
+		Assert.assertEquals("7", cartCodec.encode(new Cart(26, 3, true)));
+		Assert.assertEquals("6", cartCodec.encode(new Cart(26, 3, false)));
+	}
+
+	@Test
+	public void decodeLegacyJson() {
+		Cart cart = cartCodec.decode(26, "{\"productId\":26,\"quantity\":3,\"productSelected\":true}");
+		Assert.assertEquals(new Cart(26, 3, true), cart);
+	}
+}
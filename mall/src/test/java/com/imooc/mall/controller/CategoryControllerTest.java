@@ -0,0 +1,25 @@
+package com.imooc.mall.controller;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 不需要启动spring
+ */
+public class CategoryControllerTest {
+
+	@Test
+	public void acceptsGzip() {
+		Assert.assertTrue(CategoryController.acceptsGzip("gzip, deflate, br"));
+		Assert.assertTrue(CategoryController.acceptsGzip("deflate;q=0.5, GZIP;q=0.8"));
+		Assert.assertTrue(CategoryController.acceptsGzip("*"));
+		Assert.assertFalse(CategoryController.acceptsGzip(null));
+		Assert.assertFalse(CategoryController.acceptsGzip(""));
+		Assert.assertFalse(CategoryController.acceptsGzip("identity"));
+		Assert.assertFalse(CategoryController.acceptsGzip("gzip;q=0"));
+		Assert.assertFalse(CategoryController.acceptsGzip("gzip;q=0.000, deflate"));
+		Assert.assertFalse(CategoryController.acceptsGzip("*, gzip;q=0"));
+		Assert.assertFalse(CategoryController.acceptsGzip("*;q=0"));
+		Assert.assertFalse(CategoryController.acceptsGzip("gzip;q=abc"));
+	}
+}
@@ -0,0 +1,134 @@
+package com.imooc.mall.convert;
+
+import com.imooc.mall.form.ShippingForm;
+import com.imooc.mall.pojo.Category;
+import com.imooc.mall.pojo.Order;
+import com.imooc.mall.pojo.OrderItem;
+import com.imooc.mall.pojo.Product;
+import com.imooc.mall.pojo.Shipping;
+import com.imooc.mall.vo.CategoryVo;
+import com.imooc.mall.vo.OrderItemVo;
+import com.imooc.mall.vo.OrderVo;
+import com.imooc.mall.vo.ProductDetailVo;
+import com.imooc.mall.vo.ProductVo;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.PropertyDescriptor;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * 不需要启动spring
+ * 每个字段都填上不同的值，和 BeanUtils.copyProperties 的结果逐个属性比较
+ */
+public class VoConverterTest {
+
+	@Test
+	public void productVo() throws Exception {
+		Product product = fill(new Product());
+		ProductVo expected = new ProductVo();
+		BeanUtils.copyProperties(product, expected);
+		assertSameProperties(expected, VoConverter.toProductVo(product));
+	}
+
+	@Test
+	public void productDetailVo() throws Exception {
+		Product product = fill(new Product());
+		ProductDetailVo expected = new ProductDetailVo();
+		BeanUtils.copyProperties(product, expected);
+		assertSameProperties(expected, VoConverter.toProductDetailVo(product));
+	}
+
+	@Test
+	public void categoryVo() throws Exception {
+		Category category = fill(new Category());
+		CategoryVo expected = new CategoryVo();
+		BeanUtils.copyProperties(category, expected);
+		assertSameProperties(expected, VoConverter.toCategoryVo(category));
+	}
+
+	@Test
+	public void orderVo() throws Exception {
+		Order order = fill(new Order());
+		OrderVo expected = new OrderVo();
+		BeanUtils.copyProperties(order, expected);
+		assertSameProperties(expected, VoConverter.toOrderVo(order));
+	}
+
+	@Test
+	public void orderItemVo() throws Exception {
+		OrderItem orderItem = fill(new OrderItem());
+		OrderItemVo expected = new OrderItemVo();
+		BeanUtils.copyProperties(orderItem, expected);
+		assertSameProperties(expected, VoConverter.toOrderItemVo(orderItem));
+	}
+
+	@Test
+	public void copyToShipping() throws Exception {
+		ShippingForm form = fill(new ShippingForm());
+		//表单里没有的字段要保持原样
+		Shipping expected = fill(new Shipping());
+		Shipping actual = new Shipping();
+		BeanUtils.copyProperties(expected, actual);
+
+		BeanUtils.copyProperties(form, expected);
+		VoConverter.copyToShipping(form, actual);
+		assertSameProperties(expected, actual);
+	}
+
+	@Test
+	public void nullFields() throws Exception {
+		Product product = new Product();
+		ProductDetailVo expected = new ProductDetailVo();
+		BeanUtils.copyProperties(product, expected);
+		assertSameProperties(expected, VoConverter.toProductDetailVo(product));
+	}
+
+	/**
+	 * 按类型给每个可写属性一个不同的值
+	 */
+	private static <T> T fill(T bean) throws Exception {
+		int seed = 1;
+		for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(bean.getClass())) {
+			if (pd.getWriteMethod() == null) {
+				continue;
+			}
+			Class<?> type = pd.getPropertyType();
+			Object value;
+			if (type == Integer.class) {
+				value = seed;
+			} else if (type == Long.class) {
+				value = 1000L + seed;
+			} else if (type == String.class) {
+				value = pd.getName() + seed;
+			} else if (type == BigDecimal.class) {
+				value = new BigDecimal(seed + ".5");
+			} else if (type == Date.class) {
+				value = new Date(seed * 1000L);
+			} else if (type == Boolean.class) {
+				value = seed % 2 == 0;
+			} else {
+				continue;
+			}
+			pd.getWriteMethod().invoke(bean, value);
+			seed++;
+		}
+		return bean;
+	}
+
+	private static void assertSameProperties(Object expected, Object actual) throws Exception {
+		Assert.assertEquals(expected.getClass(), actual.getClass());
+		for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(expected.getClass())) {
+			if (pd.getReadMethod() == null) {
+				continue;
+			}
+			Object expectedValue = pd.getReadMethod().invoke(expected);
+			Object actualValue = pd.getReadMethod().invoke(actual);
+			Assert.assertTrue(pd.getName() + ": " + expectedValue + " != " + actualValue,
+					Objects.equals(expectedValue, actualValue));
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.imooc.mall.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 不需要启动spring
+ */
+@Slf4j
+public class SnowflakeIdGeneratorTest {
+
+	private static final int THREAD_COUNT = 16;
+
+	private static final int ID_PER_THREAD = 100000;
+
+	@Test
+	public void uniqueAndIncreasingUnderConcurrency() throws Exception {
+		IdGenerator idGenerator = new SnowflakeIdGenerator(3);
+		ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<long[]>> futures = new ArrayList<>();
+		for (int i = 0; i < THREAD_COUNT; i++) {
+			futures.add(executorService.submit(() -> {
+				start.await();
+				long[] ids = new long[ID_PER_THREAD];
+				for (int j = 0; j < ID_PER_THREAD; j++) {
+					ids[j] = idGenerator.nextId();
+				}
+				return ids;
+			}));
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		long[] all = new long[THREAD_COUNT * ID_PER_THREAD];
+		int index = 0;
+		for (Future<long[]> future : futures) {
+			long[] ids = future.get();
+			for (int j = 1; j < ids.length; j++) {
+				//同一个线程拿到的id是递增的
+				Assert.assertTrue(ids[j] > ids[j - 1]);
+			}
+			System.arraycopy(ids, 0, all, index, ids.length);
+			index += ids.length;
+		}
+		long costMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+		executorService.shutdown();
+		log.info("{} 个线程生成 {} 个id, 耗时 {}ms", THREAD_COUNT, all.length, costMillis);
+
+		Arrays.sort(all);
+		for (int j = 1; j < all.length; j++) {
+			Assert.assertNotEquals(all[j - 1], all[j]);
+		}
+		//js的Number安全范围
+		Assert.assertTrue(all[all.length - 1] < (1L << 53));
+	}
+
+	@Test
+	public void differentWorkerNeverCollide() {
+		IdGenerator worker1 = new SnowflakeIdGenerator(1);
+		IdGenerator worker2 = new SnowflakeIdGenerator(2);
+		long[] ids = new long[20000];
+		for (int i = 0; i < ids.length; i += 2) {
+			ids[i] = worker1.nextId();
+			ids[i + 1] = worker2.nextId();
+		}
+		Arrays.sort(ids);
+		for (int j = 1; j < ids.length; j++) {
+			Assert.assertNotEquals(ids[j - 1], ids[j]);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void workerIdOutOfRange() {
+		new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID + 1);
+	}
+}
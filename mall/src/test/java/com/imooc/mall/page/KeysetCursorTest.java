@@ -0,0 +1,61 @@
+package com.imooc.mall.page;
+
+import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.vo.CursorPageVo;
+import com.imooc.mall.vo.ResponseVo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 不需要启动spring，id 1~25 模拟一张表
+ */
+public class KeysetCursorTest {
+
+	private static final int TOTAL = 25;
+
+	@Test
+	public void pageThrough() {
+		List<Integer> all = new ArrayList<>();
+		String cursor = "";
+		while (true) {
+			ResponseVo<CursorPageVo<Integer>> responseVo = page(cursor, 10);
+			Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), responseVo.getStatus());
+			all.addAll(responseVo.getData().getList());
+			if (!responseVo.getData().getHasNextPage()) {
+				Assert.assertNull(responseVo.getData().getNextCursor());
+				break;
+			}
+			cursor = responseVo.getData().getNextCursor();
+		}
+		Assert.assertEquals(TOTAL, all.size());
+		Assert.assertEquals(Integer.valueOf(TOTAL), all.get(TOTAL - 1));
+	}
+
+	@Test
+	public void maxPageSize() {
+		ResponseVo<CursorPageVo<Integer>> responseVo = page("", Integer.MAX_VALUE);
+		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), responseVo.getStatus());
+		Assert.assertEquals(TOTAL, responseVo.getData().getList().size());
+	}
+
+	@Test
+	public void badParam() {
+		Assert.assertEquals(ResponseEnum.PARAM_ERROR.getCode(), page("not-a-cursor", 10).getStatus());
+		Assert.assertEquals(ResponseEnum.PARAM_ERROR.getCode(), page("", 0).getStatus());
+	}
+
+	private ResponseVo<CursorPageVo<Integer>> page(String cursor, int pageSize) {
+		return KeysetCursor.page(cursor, pageSize, (lastId, limit) -> {
+			Assert.assertTrue(limit <= KeysetCursor.MAX_PAGE_SIZE + 1);
+			List<Integer> list = new ArrayList<>();
+			for (int id = lastId == null ? 1 : lastId + 1; id <= TOTAL && list.size() < limit; id++) {
+				list.add(id);
+			}
+			return list;
+		}, Function.identity(), Function.identity());
+	}
+}
@@ -0,0 +1,67 @@
+package com.imooc.mall.search;
+
+import com.imooc.mall.vo.ProductVo;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 不需要启动spring
+ */
+public class ProductSearchIndexTest {
+
+	private ProductSearchIndex index;
+
+	@Before
+	public void before() {
+		index = new ProductSearchIndex();
+		index.put(product(26, "Apple iPhone 7 Plus (A1661) 128G 玫瑰金色 移动联通电信4G手机", "iPhone 7，现更以红色呈现。"));
+		index.put(product(27, "Midea/美的 BCD-535WKZM(E)冰箱双开门对开门风冷无霜智能电家用", "送品牌烤箱，五一大促"));
+		index.put(product(28, "4+64G送手环/Huawei/华为 nova 手机P9/P10plus青春", "NOVA青春版1999元"));
+	}
+
+	@Test
+	public void tokenize() {
+		Assert.assertEquals(Arrays.asList("iphone", "7", "玫", "瑰", "金", "玫瑰", "瑰金"),
+				NGramTokenizer.tokenizeForIndex("iPhone 7 玫瑰金"));
+		Assert.assertEquals(Arrays.asList("iphone", "7", "玫瑰", "瑰金"),
+				NGramTokenizer.tokenizeForQuery("iPhone 7 玫瑰金"));
+		Assert.assertEquals(Arrays.asList("冰"), NGramTokenizer.tokenizeForQuery("冰"));
+	}
+
+	@Test
+	public void searchChineseAndEnglish() {
+		Assert.assertEquals(Arrays.asList(27), ids(index.search("冰箱")));
+		Assert.assertEquals(Arrays.asList(26), ids(index.search("IPHONE")));
+		//两个商品都是手机，名称里还有"华为"的排前面
+		Assert.assertEquals(Arrays.asList(28, 26), ids(index.search("华为手机")));
+		Assert.assertTrue(index.search("电视").isEmpty());
+	}
+
+	@Test
+	public void putAndRemove() {
+		index.put(product(27, "美的空调", null));
+		Assert.assertTrue(index.search("冰箱").isEmpty());
+		Assert.assertEquals(Arrays.asList(27), ids(index.search("空调")));
+
+		index.remove(27);
+		Assert.assertTrue(index.search("空调").isEmpty());
+		Assert.assertEquals(2, index.size());
+	}
+
+	private static ProductVo product(Integer id, String name, String subtitle) {
+		ProductVo productVo = new ProductVo();
+		productVo.setId(id);
+		productVo.setName(name);
+		productVo.setSubtitle(subtitle);
+		return productVo;
+	}
+
+	private static List<Integer> ids(List<ProductVo> productVoList) {
+		return productVoList.stream().map(ProductVo::getId).collect(Collectors.toList());
+	}
+}
@@ -15,6 +15,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collections;
+
 /**
  * Created by 廖师兄
  */
@@ -66,6 +68,16 @@ public class ICartServiceTest extends MallApplicationTests {
 		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), responseVo.getStatus());
 	}
 
+	@Test
+	public void batchDelete() {
+		long count = cartService.batchDelete(uid, Collections.singleton(productId));
+		Assert.assertEquals(1, count);
+		Assert.assertTrue(cartService.listForCart(uid).stream()
+				.noneMatch(cart -> cart.getProductId().equals(productId)));
+		//加回去，@After里还要删一次
+		add();
+	}
+
 	@Test
 	public void selectAll() {
 		ResponseVo<CartVo> responseVo = cartService.selectAll(uid);
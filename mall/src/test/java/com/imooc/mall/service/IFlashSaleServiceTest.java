@@ -0,0 +1,206 @@
+package com.imooc.mall.service;
+
+import com.imooc.mall.MallApplicationTests;
+import com.imooc.mall.config.FlashSaleConfig;
+import com.imooc.mall.dao.OrderItemMapper;
+import com.imooc.mall.dao.OrderMapper;
+import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.enums.FlashSaleTicketStatusEnum;
+import com.imooc.mall.enums.OrderStatusEnum;
+import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.id.IdGenerator;
+import com.imooc.mall.pojo.FlashSaleOrderMsg;
+import com.imooc.mall.pojo.Order;
+import com.imooc.mall.pojo.OrderItem;
+import com.imooc.mall.vo.FlashSaleTicketVo;
+import com.imooc.mall.vo.ResponseVo;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+import static com.imooc.mall.consts.MallConst.*;
+
+/**
+ * 预热和落库都是自己提交的事务，测试后把库存加回去、删掉订单和redis里的数据
+ * mq换成mock，不真的发消息
+ */
+public class IFlashSaleServiceTest extends MallApplicationTests {
+
+	@Autowired
+	private IFlashSaleService flashSaleService;
+
+	@Autowired
+	private FlashSaleConfig flashSaleConfig;
+
+	@Autowired
+	private ProductMapper productMapper;
+
+	@Autowired
+	private OrderMapper orderMapper;
+
+	@Autowired
+	private OrderItemMapper orderItemMapper;
+
+	@Autowired
+	private IStockService stockService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private IdGenerator idGenerator;
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@MockBean
+	private RabbitTemplate rabbitTemplate;
+
+	private Integer shippingId = 4;
+
+	private Integer productId = 26;
+
+	private boolean enabled;
+
+	private List<Long> orderNoList = new ArrayList<>();
+
+	private int preloadedStock;
+
+	@Before
+	public void before() {
+		enabled = flashSaleConfig.isEnabled();
+		flashSaleConfig.setEnabled(true);
+	}
+
+	@After
+	public void after() {
+		flashSaleConfig.setEnabled(enabled);
+		redisTemplate.delete(String.format(FLASH_SALE_STOCK_REDIS_KEY_TEMPLATE, productId));
+		redisTemplate.delete(String.format(FLASH_SALE_END_REDIS_KEY_TEMPLATE, productId));
+		redisTemplate.delete(String.format(FLASH_SALE_BUYERS_REDIS_KEY_TEMPLATE, productId));
+		for (Long orderNo : orderNoList) {
+			redisTemplate.delete(String.format(FLASH_SALE_TICKET_REDIS_KEY_TEMPLATE, orderNo));
+			redisTemplate.opsForZSet().remove(ORDER_TIMEOUT_REDIS_KEY, String.valueOf(orderNo));
+			Order order = orderMapper.selectByOrderNo(orderNo);
+			if (order != null) {
+				for (OrderItem orderItem : orderItemMapper.selectByOrderNoSet(Collections.singleton(orderNo))) {
+					orderItemMapper.deleteByPrimaryKey(orderItem.getId());
+				}
+				orderMapper.deleteByPrimaryKey(order.getId());
+			}
+		}
+		if (preloadedStock > 0) {
+			transactionTemplate.execute(status -> {
+				stockService.increase(Collections.singletonMap(productId, preloadedStock));
+				return null;
+			});
+		}
+	}
+
+	@Test
+	public void preload() {
+		Integer stock = productMapper.selectByPrimaryKey(productId).getStock();
+		Assert.assertTrue(preload(2));
+		Assert.assertEquals(Integer.valueOf(stock - 2), productMapper.selectByPrimaryKey(productId).getStock());
+		Assert.assertEquals("2", redisTemplate.opsForValue().get(String.format(FLASH_SALE_STOCK_REDIS_KEY_TEMPLATE, productId)));
+
+		//已经在秒杀中，不会重复扣
+		Assert.assertFalse(preload(2));
+		Assert.assertEquals(Integer.valueOf(stock - 2), productMapper.selectByPrimaryKey(productId).getStock());
+	}
+
+	@Test
+	public void create() {
+		Assert.assertEquals(ResponseEnum.FLASH_SALE_NOT_AVAILABLE.getCode(), create(1).getStatus());
+
+		Assert.assertTrue(preload(2));
+		ResponseVo<FlashSaleTicketVo> responseVo = create(1);
+		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), responseVo.getStatus());
+		Assert.assertEquals(FlashSaleTicketStatusEnum.QUEUING.getCode(), responseVo.getData().getStatus());
+
+		//每人一件
+		Assert.assertEquals(ResponseEnum.FLASH_SALE_REPEAT.getCode(), create(1).getStatus());
+		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), create(2).getStatus());
+		Assert.assertEquals(ResponseEnum.FLASH_SALE_SOLD_OUT.getCode(), create(3).getStatus());
+
+		//只有自己能查
+		Long orderNo = responseVo.getData().getOrderNo();
+		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), flashSaleService.ticket(1, orderNo).getStatus());
+		Assert.assertEquals(ResponseEnum.FLASH_SALE_TICKET_NOT_EXIST.getCode(), flashSaleService.ticket(2, orderNo).getStatus());
+	}
+
+	@Test
+	public void unload() {
+		Integer stock = productMapper.selectByPrimaryKey(productId).getStock();
+		Assert.assertTrue(preload(2));
+		ResponseVo<FlashSaleTicketVo> responseVo = create(1);
+		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), responseVo.getStatus());
+
+		//还没到结束时间
+		Assert.assertEquals(-1, flashSaleService.unloadIfEnded(productId));
+
+		//没卖掉的一件还回数据库，之后不能再抢
+		Assert.assertEquals(1, unloadNow());
+		Assert.assertEquals(Integer.valueOf(stock - 1), productMapper.selectByPrimaryKey(productId).getStock());
+		Assert.assertEquals(ResponseEnum.FLASH_SALE_NOT_AVAILABLE.getCode(), create(2).getStatus());
+		Assert.assertEquals(-1, unloadNow());
+
+		//结束后才失败的排队号，这一件也还回数据库
+		Long orderNo = responseVo.getData().getOrderNo();
+		flashSaleService.fail(new FlashSaleOrderMsg(orderNo, 1, productId, shippingId), ResponseEnum.ERROR.getDesc());
+		preloadedStock -= 1;
+		Assert.assertEquals(stock, productMapper.selectByPrimaryKey(productId).getStock());
+		Assert.assertEquals(FlashSaleTicketStatusEnum.FAILED.getCode(), flashSaleService.ticket(1, orderNo).getData().getStatus());
+	}
+
+	@Test
+	public void materialize() {
+		Integer stock = productMapper.selectByPrimaryKey(productId).getStock();
+		Long orderNo = idGenerator.nextId();
+		FlashSaleOrderMsg msg = new FlashSaleOrderMsg(orderNo, 1, productId, shippingId);
+		FlashSaleOrderMsg wrongShipping = new FlashSaleOrderMsg(idGenerator.nextId(), 1, productId, -1);
+		orderNoList.add(orderNo);
+		orderNoList.add(wrongShipping.getOrderNo());
+
+		//同一条重复投递只建一个订单
+		Assert.assertEquals(1, flashSaleService.materialize(Arrays.asList(msg, msg, wrongShipping)));
+		Assert.assertEquals(0, flashSaleService.materialize(Arrays.asList(msg)));
+
+		Order order = orderMapper.selectByOrderNo(orderNo);
+		Assert.assertEquals(OrderStatusEnum.NO_PAY.getCode(), order.getStatus());
+		//库存预热时已经扣过了
+		Assert.assertEquals(stock, productMapper.selectByPrimaryKey(productId).getStock());
+	}
+
+	private boolean preload(int stock) {
+		boolean preloaded = flashSaleService.preload(productId, stock);
+		if (preloaded) {
+			preloadedStock += stock;
+		}
+		return preloaded;
+	}
+
+	private int unloadNow() {
+		int quantity = flashSaleService.unload(productId);
+		if (quantity > 0) {
+			preloadedStock -= quantity;
+		}
+		return quantity;
+	}
+
+	private ResponseVo<FlashSaleTicketVo> create(Integer uid) {
+		ResponseVo<FlashSaleTicketVo> responseVo = flashSaleService.create(uid, productId, shippingId);
+		if (responseVo.getData() != null) {
+			orderNoList.add(responseVo.getData().getOrderNo());
+		}
+		return responseVo;
+	}
+}
@@ -4,6 +4,7 @@ import com.github.pagehelper.PageInfo;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.imooc.mall.MallApplicationTests;
+import com.imooc.mall.dao.ProductMapper;
 import com.imooc.mall.enums.ResponseEnum;
 import com.imooc.mall.form.CartAddForm;
 import com.imooc.mall.vo.CartVo;
@@ -16,6 +17,8 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+
 /**
  * Created by 廖师兄
  */
@@ -29,6 +32,9 @@ public class IOrderServiceTest extends MallApplicationTests {
 	@Autowired
 	private ICartService cartService;
 
+	@Autowired
+	private ProductMapper productMapper;
+
 	private Integer uid = 1;
 
 	private Integer shippingId = 4;
@@ -80,4 +86,28 @@ public class IOrderServiceTest extends MallApplicationTests {
 		log.info("result={}", gson.toJson(responseVo));
 		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), responseVo.getStatus());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void batchCancel() {
+		ResponseVo<OrderVo> vo = create();
+		Long orderNo = vo.getData().getOrderNo();
+		Integer quantity = vo.getData().getOrderItemVoList().get(0).getQuantity();
+		Integer stock = productMapper.selectByPrimaryKey(productId).getStock();
+
+		Assert.assertEquals(1, orderService.batchCancel(Collections.singleton(orderNo)));
+		Assert.assertEquals(Integer.valueOf(stock + quantity), productMapper.selectByPrimaryKey(productId).getStock());
+
+		//重复取消不会再还库存
+		Assert.assertEquals(0, orderService.batchCancel(Collections.singleton(orderNo)));
+		Assert.assertEquals(Integer.valueOf(stock + quantity), productMapper.selectByPrimaryKey(productId).getStock());
+	}
+
+	@Test
+	public void batchPaidAfterCancel() {
+		Long orderNo = create().getData().getOrderNo();
+		Assert.assertEquals(1, orderService.batchCancel(Collections.singleton(orderNo)));
+
+		//已取消的订单收到支付通知，不改状态，记录下来等退款
+		Assert.assertEquals(0, orderService.batchPaid(Collections.singleton(orderNo)));
+	}
+}
@@ -3,7 +3,10 @@ package com.imooc.mall.service;
 import com.github.pagehelper.PageInfo;
 import com.imooc.mall.MallApplicationTests;
 import com.imooc.mall.enums.ResponseEnum;
+import com.imooc.mall.page.KeysetCursor;
+import com.imooc.mall.vo.CursorPageVo;
 import com.imooc.mall.vo.ProductDetailVo;
+import com.imooc.mall.vo.ProductVo;
 import com.imooc.mall.vo.ResponseVo;
 import org.junit.Assert;
 import org.junit.Test;
@@ -23,9 +26,44 @@ public class IProductServiceTest extends MallApplicationTests {
 		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), responseVo.getStatus());
 	}
 
+	@Test
+	public void listByCursor() {
+		ResponseVo<CursorPageVo<ProductVo>> first = productService.listByCursor(null, "", 2);
+		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), first.getStatus());
+		if (!first.getData().getHasNextPage()) {
+			return;
+		}
+
+		ResponseVo<CursorPageVo<ProductVo>> second = productService.listByCursor(null, first.getData().getNextCursor(), 2);
+		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), second.getStatus());
+		Integer lastIdOfFirst = first.getData().getList().get(1).getId();
+		for (ProductVo productVo : second.getData().getList()) {
+			Assert.assertTrue(productVo.getId() > lastIdOfFirst);
+		}
+	}
+
+	@Test
+	public void listByBadCursor() {
+		ResponseVo<CursorPageVo<ProductVo>> responseVo = productService.listByCursor(null, "not-a-cursor", 2);
+		Assert.assertEquals(ResponseEnum.PARAM_ERROR.getCode(), responseVo.getStatus());
+	}
+
+	@Test
+	public void listByCursorMaxPageSize() {
+		ResponseVo<CursorPageVo<ProductVo>> responseVo = productService.listByCursor(null, "", Integer.MAX_VALUE);
+		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), responseVo.getStatus());
+		Assert.assertTrue(responseVo.getData().getList().size() <= KeysetCursor.MAX_PAGE_SIZE);
+	}
+
 	@Test
 	public void detail() {
 		ResponseVo<ProductDetailVo> responseVo = productService.detail(26);
 		Assert.assertEquals(ResponseEnum.SUCCESS.getCode(), responseVo.getStatus());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void detailNotExist() {
+		ResponseVo<ProductDetailVo> responseVo = productService.detail(-1);
+		Assert.assertEquals(ResponseEnum.PRODUCT_NOT_EXIST.getCode(), responseVo.getStatus());
+	}
+}
@@ -0,0 +1,97 @@
+package com.imooc.mall.service;
+
+import com.imooc.mall.MallApplicationTests;
+import com.imooc.mall.dao.ProductMapper;
+import com.imooc.mall.pojo.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多线程抢同一个商品的库存，不能超卖
+ */
+@Slf4j
+public class IStockServiceTest extends MallApplicationTests {
+
+	private static final int THREAD_COUNT = 32;
+
+	private static final int TIMES_PER_THREAD = 20;
+
+	private static final int STOCK = 100;
+
+	@Autowired
+	private IStockService stockService;
+
+	@Autowired
+	private ProductMapper productMapper;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private Integer productId = 26;
+
+	private Integer originStock;
+
+	@Before
+	public void before() {
+		originStock = productMapper.selectByPrimaryKey(productId).getStock();
+		updateStock(STOCK);
+	}
+
+	@After
+	public void after() {
+		updateStock(originStock);
+	}
+
+	@Test
+	public void decreaseHotProduct() throws Exception {
+		ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger success = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < THREAD_COUNT; i++) {
+			futures.add(executorService.submit(() -> {
+				start.await();
+				for (int j = 0; j < TIMES_PER_THREAD; j++) {
+					Boolean ok = transactionTemplate.execute(status ->
+							stockService.decrease(Collections.singletonMap(productId, 1)));
+					if (Boolean.TRUE.equals(ok)) {
+						success.incrementAndGet();
+					}
+				}
+				return null;
+			}));
+		}
+
+		long begin = System.currentTimeMillis();
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long cost = System.currentTimeMillis() - begin;
+		executorService.shutdown();
+
+		int total = THREAD_COUNT * TIMES_PER_THREAD;
+		log.info("扣库存 {} 次, 成功 {} 次, 耗时 {}ms, {} 次/秒",
+				total, success.get(), cost, total * 1000L / Math.max(cost, 1));
+		Assert.assertEquals(STOCK, success.get());
+		Assert.assertEquals(Integer.valueOf(0), productMapper.selectByPrimaryKey(productId).getStock());
+	}
+
+	private void updateStock(Integer stock) {
+		Product product = new Product();
+		product.setId(productId);
+		product.setStock(stock);
+		productMapper.updateByPrimaryKeySelective(product);
+	}
+}
@@ -0,0 +1,135 @@
+package com.imooc.mall.service;
+
+import com.imooc.mall.MallApplicationTests;
+import com.imooc.mall.dao.OrderMapper;
+import com.imooc.mall.enums.OrderStatusEnum;
+import com.imooc.mall.id.IdGenerator;
+import com.imooc.mall.pojo.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 多线程同时对同一批[未付款]订单做 支付/取消
+ * 对比 先查-再判断-再整行写回 和 一条条件更新(CAS) 的耗时和结果
+ */
+@Slf4j
+public class OrderStatusTransitionTest extends MallApplicationTests {
+
+	private static final int ORDER_COUNT = 200;
+
+	private static final int THREAD_COUNT = 16;
+
+	@Autowired
+	private OrderMapper orderMapper;
+
+	@Autowired
+	private IdGenerator idGenerator;
+
+	private Integer uid = 1;
+
+	private List<Long> orderNoList = new ArrayList<>();
+
+	@Before
+	public void before() {
+		for (int i = 0; i < ORDER_COUNT; i++) {
+			Order order = new Order();
+			order.setOrderNo(idGenerator.nextId());
+			order.setUserId(uid);
+			order.setStatus(OrderStatusEnum.NO_PAY.getCode());
+			orderMapper.insertSelective(order);
+			orderNoList.add(order.getOrderNo());
+		}
+	}
+
+	@After
+	public void after() {
+		for (Long orderNo : orderNoList) {
+			orderMapper.deleteByPrimaryKey(orderMapper.selectByOrderNo(orderNo).getId());
+		}
+	}
+
+	@Test
+	public void readModifyWrite() throws Exception {
+		AtomicIntegerArray winCount = race((orderNo, toStatus) -> {
+			Order order = orderMapper.selectByOrderNo(orderNo);
+			if (!order.getStatus().equals(OrderStatusEnum.NO_PAY.getCode())) {
+				return false;
+			}
+			order.setStatus(toStatus);
+			order.setCloseTime(new Date());
+			return orderMapper.updateByPrimaryKeySelective(order) > 0;
+		}, "先查再写回");
+		//这条路不保证只有一个成功，只记录
+		log.info("先查再写回: {} 个订单被支付和取消同时改成功", countDoubleWin(winCount));
+	}
+
+	@Test
+	public void compareAndSet() throws Exception {
+		AtomicIntegerArray winCount = race((orderNo, toStatus) ->
+				orderMapper.updateStatusIfCurrent(orderNo, OrderStatusEnum.NO_PAY.getCode(), toStatus, new Date()) > 0,
+				"条件更新");
+		Assert.assertEquals(0, countDoubleWin(winCount));
+		for (int i = 0; i < ORDER_COUNT; i++) {
+			Assert.assertEquals(1, winCount.get(i));
+		}
+	}
+
+	/**
+	 * 偶数线程去支付，奇数线程去取消，每个线程都把所有订单过一遍
+	 * @return 每个订单有几个线程改成功了
+	 */
+	private AtomicIntegerArray race(Transition transition, String name) throws Exception {
+		AtomicIntegerArray winCount = new AtomicIntegerArray(ORDER_COUNT);
+		ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREAD_COUNT; t++) {
+			Integer toStatus = t % 2 == 0 ? OrderStatusEnum.PAID.getCode() : OrderStatusEnum.CANCELED.getCode();
+			futures.add(executorService.submit(() -> {
+				start.await();
+				for (int i = 0; i < ORDER_COUNT; i++) {
+					if (transition.apply(orderNoList.get(i), toStatus)) {
+						winCount.incrementAndGet(i);
+					}
+				}
+				return null;
+			}));
+		}
+
+		long begin = System.currentTimeMillis();
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long cost = System.currentTimeMillis() - begin;
+		executorService.shutdown();
+
+		int total = THREAD_COUNT * ORDER_COUNT;
+		log.info("{}: 状态流转 {} 次, 耗时 {}ms, {} 次/秒", name, total, cost, total * 1000L / Math.max(cost, 1));
+		return winCount;
+	}
+
+	private int countDoubleWin(AtomicIntegerArray winCount) {
+		int count = 0;
+		for (int i = 0; i < ORDER_COUNT; i++) {
+			if (winCount.get(i) > 1) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private interface Transition {
+		boolean apply(Long orderNo, Integer toStatus);
+	}
+}
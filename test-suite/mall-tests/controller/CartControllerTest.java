@@ -15,6 +15,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.imooc.mall.form.CartAddForm;
 import com.imooc.mall.form.CartUpdateForm;
 import com.imooc.mall.pojo.User;
+import com.imooc.mall.service.ISessionService;
 import com.imooc.mall.service.impl.CartServiceImpl;
 import com.imooc.mall.vo.CartVo;
 import com.imooc.mall.vo.ResponseVo;
@@ -28,6 +29,8 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import javax.servlet.http.Cookie;
+
 import java.math.BigDecimal;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -41,12 +44,17 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 public class CartControllerTest {
 
+    private static final String TOKEN = "test-token";
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private CartServiceImpl cartService;
 
+    @MockBean
+    private ISessionService sessionService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -61,6 +69,8 @@ public class CartControllerTest {
         user = new User();
         user.setId(1);
         user.setUsername("testuser");
+        // 登录态: token -> 用户
+        when(sessionService.get(TOKEN)).thenReturn(user);
 
         // 初始化添加购物车表单
         cartAddForm = new CartAddForm();
@@ -88,7 +98,7 @@ public class CartControllerTest {
         mockMvc.perform(post("/carts")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(cartAddForm))
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0))
                 .andExpect(jsonPath("$.data.cartTotalPrice").value(9999.00));
@@ -102,7 +112,7 @@ public class CartControllerTest {
 
         // 执行测试
         mockMvc.perform(get("/carts")
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0))
                 .andExpect(jsonPath("$.data.cartTotalQuantity").value(2));
@@ -119,7 +129,7 @@ public class CartControllerTest {
         mockMvc.perform(put("/carts/1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(cartUpdateForm))
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0));
     }
@@ -132,7 +142,7 @@ public class CartControllerTest {
 
         // 执行测试
         mockMvc.perform(delete("/carts/1")
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0));
     }
@@ -145,7 +155,7 @@ public class CartControllerTest {
 
         // 执行测试
         mockMvc.perform(put("/carts/selectAll")
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0));
     }
@@ -158,7 +168,7 @@ public class CartControllerTest {
 
         // 执行测试
         mockMvc.perform(put("/carts/unSelectAll")
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0));
     }
@@ -171,7 +181,7 @@ public class CartControllerTest {
 
         // 执行测试
         mockMvc.perform(get("/carts/products/sum")
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0))
                 .andExpect(jsonPath("$.data").value(2));
@@ -13,6 +13,7 @@ package com.imooc.mall.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.imooc.mall.form.OrderCreateForm;
 import com.imooc.mall.pojo.User;
+import com.imooc.mall.service.ISessionService;
 import com.imooc.mall.service.impl.OrderServiceImpl;
 import com.imooc.mall.vo.OrderVo;
 import com.imooc.mall.vo.ResponseVo;
@@ -26,6 +27,8 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import javax.servlet.http.Cookie;
+
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
@@ -41,12 +44,17 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 public class OrderControllerTest {
 
+    private static final String TOKEN = "test-token";
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private OrderServiceImpl orderService;
 
+    @MockBean
+    private ISessionService sessionService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -59,6 +67,8 @@ public class OrderControllerTest {
         user = new User();
         user.setId(1);
         user.setUsername("testuser");
+        // 登录态: token -> 用户
+        when(sessionService.get(TOKEN)).thenReturn(user);
 
         // 初始化订单创建表单
         orderForm = new OrderCreateForm();
@@ -80,7 +90,7 @@ public class OrderControllerTest {
         mockMvc.perform(post("/orders")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(orderForm))
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0))
                 .andExpect(jsonPath("$.data.orderNo").value(12345678));
@@ -101,7 +111,7 @@ public class OrderControllerTest {
 
         // 执行测试
         mockMvc.perform(get("/orders")
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0))
                 .andExpect(jsonPath("$.data[0].orderNo").value(12345678))
@@ -121,7 +131,7 @@ public class OrderControllerTest {
 
         // 执行测试
         mockMvc.perform(get("/orders/1")
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0))
                 .andExpect(jsonPath("$.data.orderNo").value(12345678));
@@ -135,7 +145,7 @@ public class OrderControllerTest {
 
         // 执行测试
         mockMvc.perform(put("/orders/1/cancel")
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0));
     }
@@ -151,7 +161,7 @@ public class OrderControllerTest {
         mockMvc.perform(post("/orders")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(orderForm))
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(ResponseEnum.SHIPPING_NOT_EXIST.getCode()));
     }
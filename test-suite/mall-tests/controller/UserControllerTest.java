@@ -13,6 +13,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.imooc.mall.form.UserLoginForm;
 import com.imooc.mall.form.UserRegisterForm;
 import com.imooc.mall.pojo.User;
+import com.imooc.mall.service.ISessionService;
 import com.imooc.mall.service.impl.UserServiceImpl;
 import com.imooc.mall.vo.ResponseVo;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,6 +26,8 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import javax.servlet.http.Cookie;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -34,12 +37,17 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 public class UserControllerTest {
 
+    private static final String TOKEN = "test-token";
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private UserServiceImpl userService;
 
+    @MockBean
+    private ISessionService sessionService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -97,18 +105,28 @@ public class UserControllerTest {
     @Test
     @DisplayName("测试用户登录 - 成功场景")
     void testLogin_Success() throws Exception {
-        // 模拟服务层返回成功
-        when(userService.login(anyString(), anyString())).thenReturn(ResponseVo.success());
+        User user = new User();
+        user.setId(1);
+        user.setUsername("testuser");
 
-        // 执行测试
+        // 模拟服务层返回成功，登录态创建后返回token
+        when(userService.login(anyString(), anyString())).thenReturn(ResponseVo.success(user));
+        when(sessionService.create(any(User.class))).thenReturn(TOKEN);
+
+        // 执行测试，token同时写到cookie和header
         mockMvc.perform(post("/user/login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(loginForm)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.status").value(0));
+                .andExpect(jsonPath("$.status").value(0))
+                .andExpect(cookie().value(MallConst.TOKEN, TOKEN))
+                .andExpect(cookie().httpOnly(MallConst.TOKEN, true))
+                .andExpect(cookie().maxAge(MallConst.TOKEN, -1))
+                .andExpect(header().string(MallConst.TOKEN, TOKEN));
 
         // 验证服务调用
         verify(userService, times(1)).login(anyString(), anyString());
+        verify(sessionService, times(1)).create(any(User.class));
     }
 
     @Test
@@ -135,12 +153,15 @@ public class UserControllerTest {
         user.setUsername("testuser");
         user.setEmail("test@example.com");
         
+        // 登录态: token -> 用户
+        when(sessionService.get(TOKEN)).thenReturn(user);
+
         // 模拟服务层返回用户信息
         when(userService.getUserInfo(anyInt())).thenReturn(ResponseVo.success(user));
 
         // 执行测试
         mockMvc.perform(get("/user")
-                .sessionAttr(MallConst.CURRENT_USER, user))
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.status").value(0))
                 .andExpect(jsonPath("$.data.username").value("testuser"));
@@ -149,9 +170,17 @@ public class UserControllerTest {
     @Test
     @DisplayName("测试登出功能")
     void testLogout() throws Exception {
-        // 执行测试
-        mockMvc.perform(post("/user/logout"))
+        User user = new User();
+        user.setId(1);
+        when(sessionService.get(TOKEN)).thenReturn(user);
+
+        // 执行测试，登出后token失效，cookie清掉
+        mockMvc.perform(post("/user/logout")
+                .cookie(new Cookie(MallConst.TOKEN, TOKEN)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.status").value(0));
+                .andExpect(jsonPath("$.status").value(0))
+                .andExpect(cookie().maxAge(MallConst.TOKEN, 0));
+
+        verify(sessionService, times(1)).remove(TOKEN);
     }
 }